@@ -0,0 +1,127 @@
+import java.util.Random;
+
+/**
+ * The scheduler side of bench.QueueChurn. The inline heap orders processes as a
+ * ReadyQueue with the same comparator would, ties included, but compares the
+ * ProcessTable's arrays itself instead of calling a SlotComparator.
+ */
+public class ReadyQueueChurn implements bench.QueueChurn {
+
+    static final long SEED = 42;
+    static final int ARITY = ReadyQueue.ARITY;
+
+    private boolean bursts; // ordered by current burst, else by priority
+    private ProcessTable table;
+    private Process[] processes;
+    private int time;
+
+    private ReadyQueue queue;
+
+    private int[] heap;
+    private int size;
+
+    public ReadyQueueChurn(String queue, String order, int size) {
+        bursts = order.equals("burst");
+        processes = TableCreation.createTable(size, new Random(SEED));
+        table = processes[0].getTable();
+        if (queue.equals("readyqueue")) {
+            this.queue = new ReadyQueue(bursts ? new Strategy.BurstComparator() : new Strategy.PriorityComparator());
+            for (Process process : processes) {
+                this.queue.offer(process);
+            }
+        }
+        else {
+            heap = new int[size];
+            for (int slot = 0; slot < size; slot++) {
+                siftUp(this.size++, slot);
+            }
+        }
+    }
+
+    @Override
+    public long churn(int count) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            time++;
+            if (queue != null) {
+                Process process = queue.poll();
+                sum += process.getPID();
+                process.setReadyTime(time);
+                process.setPriority((process.getPriority() + 1) % 3);
+                queue.offer(process);
+            }
+            else {
+                int slot = heap[0];
+                int last = heap[--size];
+                if (size > 0) {
+                    siftDown(0, last);
+                }
+                sum += table.PID[slot];
+                table.readyTime[slot] = time;
+                table.priority[slot] = (table.priority[slot] + 1) % 3;
+                siftUp(size++, slot);
+            }
+        }
+        return sum;
+    }
+
+    private int compare(int a, int b) {
+        int ka;
+        int kb;
+        if (bursts) {
+            ka = table.bursts[table.burstStart[a] + table.tracker[a]];
+            kb = table.bursts[table.burstStart[b] + table.tracker[b]];
+        }
+        else {
+            ka = table.priority[a];
+            kb = table.priority[b];
+        }
+        if (ka != kb) {
+            return ka < kb ? -1 : 1;
+        }
+        if (table.readyTime[a] != table.readyTime[b]) {
+            return table.readyTime[a] < table.readyTime[b] ? -1 : 1;
+        }
+        return Integer.compare(table.PID[a], table.PID[b]);
+    }
+
+    private void siftUp(int i, int slot) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (compare(slot, heap[parent]) >= 0) {
+                break;
+            }
+            set(i, heap[parent]);
+            i = parent;
+        }
+        set(i, slot);
+    }
+
+    private void siftDown(int i, int slot) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int least = first;
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                if (compare(heap[child], heap[least]) < 0) {
+                    least = child;
+                }
+            }
+            if (compare(heap[least], slot) >= 0) {
+                break;
+            }
+            set(i, heap[least]);
+            i = least;
+        }
+        set(i, slot);
+    }
+
+    private void set(int i, int slot) {
+        heap[i] = slot;
+        table.queueIndex[slot] = i;
+    }
+
+}
@@ -0,0 +1,71 @@
+import java.util.Random;
+
+/**
+ * The scheduler side of bench.Simulation, for the JMH benchmarks in bench
+ */
+public class SchedulerSimulation implements bench.Simulation {
+
+    static final long SEED = 42;
+
+    private String algorithm;
+    private boolean history;
+    private boolean eventDriven;
+    private Process[] table;
+    private Scheduler scheduler;
+    private int end = -1; // the time a whole run ends, once known
+
+    public SchedulerSimulation(String algorithm, int size, boolean history, boolean eventDriven) {
+        this.algorithm = algorithm;
+        this.history = history;
+        this.eventDriven = eventDriven;
+        table = TableCreation.createTable(size, new Random(SEED));
+    }
+
+    private Scheduler newScheduler() {
+        Scheduler result = new Scheduler(
+                Scheduler.createStrategy(algorithm, table.length, 0), Scheduler.copyTable(table));
+        result.setRecordHistory(history);
+        result.setEventSink(EventSink.NONE);
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        scheduler = newScheduler();
+        scheduler.setEventDriven(eventDriven);
+    }
+
+    @Override
+    public int run() {
+        scheduler.run();
+        return scheduler.getTimer();
+    }
+
+    @Override
+    public void resetHalfway() {
+        if (end < 0) {
+            Scheduler whole = newScheduler();
+            whole.setRecordHistory(false);
+            whole.setEventDriven(true);
+            whole.run();
+            end = whole.getTimer();
+        }
+        scheduler = newScheduler();
+        while (scheduler.getTimer() < end / 2) {
+            scheduler.work();
+        }
+    }
+
+    @Override
+    public boolean canWork(int timeUnits) {
+        return scheduler.getTimer() + timeUnits <= end;
+    }
+
+    @Override
+    public void work(int timeUnits) {
+        for (int i = 0; i < timeUnits; i++) {
+            scheduler.work();
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a whole workload, for every algorithm and workload size, with and
+ * without history recording. Each measurement is one run, from a fresh copy of the
+ * workload. With -prof gc, gc.alloc.rate.norm is the bytes allocated per run (see
+ * TimeUnitBenchmark for the bytes per simulated time unit).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FullRunBenchmark {
+
+    @Param({"FCFS", "P", "SJF", "SJRF", "RR", "DQRR", "MLFQ"})
+    public String algorithm;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean history;
+
+    @Param({"false"})
+    public boolean eventDriven;
+
+    private Simulation simulation;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        simulation = Simulation.create(algorithm, size, history, eventDriven);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        simulation.reset();
+    }
+
+    @Benchmark
+    public int run() {
+        return simulation.run();
+    }
+
+}
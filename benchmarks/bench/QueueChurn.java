@@ -0,0 +1,31 @@
+package bench;
+
+/**
+ * A full ready queue that is polled and refilled, as the benchmarks see it. Like
+ * Simulation, it is implemented next to the scheduler, by ReadyQueueChurn.
+ */
+public interface QueueChurn {
+
+    /**
+     * A queue holding size processes generated like TableCreation, with a fixed seed
+     * @param queue: "readyqueue" for a ReadyQueue with a Strategy comparator, or
+     * "inline" for an int slot heap that compares the ProcessTable's arrays itself
+     * @param order: "priority" or "burst", as Priority and SJF order their queues
+     */
+    static QueueChurn create(String queue, String order, int size) {
+        try {
+            return (QueueChurn) Class.forName("ReadyQueueChurn")
+                    .getConstructor(String.class, String.class, int.class)
+                    .newInstance(queue, order, size);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Polls the first process, changes its key and offers it back, count times
+     * @return a checksum of the processes polled
+     */
+    long churn(int count);
+
+}
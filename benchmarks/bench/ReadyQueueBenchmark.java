@@ -0,0 +1,44 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the comparators cost on the hot path: a ready queue polled and refilled
+ * through ReadyQueue and a Strategy comparator, against the same heap of int slots
+ * with the comparison written inline, with the same order and the same table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ReadyQueueBenchmark {
+
+    static final int OPERATIONS = 1000; // per invocation
+
+    @Param({"readyqueue", "inline"})
+    public String queue;
+
+    @Param({"priority", "burst"})
+    public String order;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private QueueChurn churn;
+
+    @Setup(Level.Trial)
+    public void fillQueue() {
+        churn = QueueChurn.create(queue, order, size);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public long pollAndOffer() {
+        return churn.churn(OPERATIONS);
+    }
+
+}
@@ -0,0 +1,53 @@
+package bench;
+
+/**
+ * One workload simulated by one algorithm, as the benchmarks see it. JMH only takes
+ * benchmarks in a named package, and the scheduler is in the unnamed one, which a
+ * named package cannot refer to, so the benchmarks go through this interface. It is
+ * implemented by SchedulerSimulation, next to the scheduler.
+ */
+public interface Simulation {
+
+    /**
+     * A simulation of size processes generated like TableCreation, with a fixed seed
+     * @param algorithm: as on the Scheduler command line, e.g. "RR"
+     * @param history: whether the scheduler records its history
+     * @param eventDriven: whether run() uses the event-driven engine
+     */
+    static Simulation create(String algorithm, int size, boolean history, boolean eventDriven) {
+        try {
+            return (Simulation) Class.forName("SchedulerSimulation")
+                    .getConstructor(String.class, int.class, boolean.class, boolean.class)
+                    .newInstance(algorithm, size, history, eventDriven);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A new scheduler over a fresh copy of the workload
+     */
+    void reset();
+
+    /**
+     * Runs the scheduler until every process has completed
+     * @return how many time units were simulated
+     */
+    int run();
+
+    /**
+     * A new scheduler, worked on until half of the time units of a whole run have passed
+     */
+    void resetHalfway();
+
+    /**
+     * Can the scheduler work on this many more time units before the run ends?
+     */
+    boolean canWork(int timeUnits);
+
+    /**
+     * Calls work() timeUnits times, one time unit each
+     */
+    void work(int timeUnits);
+
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a single time unit: work() on a scheduler halfway through its run,
+ * for every algorithm and workload size, with and without history recording. Every
+ * operation is one work() call, so with -prof gc, gc.alloc.rate.norm is the bytes
+ * allocated per simulated time unit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TimeUnitBenchmark {
+
+    static final int TIME_UNITS = 10000; // per invocation, so setting up between them is cheap
+
+    @Param({"FCFS", "P", "SJF", "SJRF", "RR", "DQRR", "MLFQ"})
+    public String algorithm;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean history;
+
+    private Simulation simulation;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        simulation = Simulation.create(algorithm, size, history, false);
+        simulation.resetHalfway();
+    }
+
+    /**
+     * Starts again from halfway when the run is about to end
+     */
+    @Setup(Level.Invocation)
+    public void keepWorking() {
+        if (!simulation.canWork(TIME_UNITS)) {
+            simulation.resetHalfway();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TIME_UNITS)
+    public void work() {
+        simulation.work(TIME_UNITS);
+    }
+
+}
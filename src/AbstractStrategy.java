@@ -1,10 +1,12 @@
-import java.util.Comparator;
 import java.util.Iterator;
-import java.util.PriorityQueue;
+import java.util.Map;
 
 public abstract class AbstractStrategy implements Strategy {
 
-    private PriorityQueue<Process> readyQueue;
+    private ReadyQueue readyQueue;
+    // If using multiple Strategies, they all share the same blocked processes
+    private ReadyQueue blockedProcesses;
+    private EventSink events; // where to report events
     private String name;
     private int numStrategies;
 
@@ -16,19 +18,24 @@ public abstract class AbstractStrategy implements Strategy {
         this(name, numStrategies, new NullComparator());
     }
 
-    public AbstractStrategy(String name, int numStrategies, Comparator<Process> comparator) {
+    public AbstractStrategy(String name, int numStrategies, ReadyQueue.SlotComparator comparator) {
         this.name = name;
         this.numStrategies = numStrategies;
-        readyQueue = new PriorityQueue<>(comparator);
+        readyQueue = new ReadyQueue(comparator);
+        blockedProcesses = new ReadyQueue(new IOComparator());
+        events = EventSink.NONE;
     }
 
-    public static AbstractStrategy copyAbstractStrategy(AbstractStrategy copy) {
+    /**
+     * @param copies: the copy of each process, which goes in the copy's ready queue
+     */
+    public static AbstractStrategy copyAbstractStrategy(AbstractStrategy copy, Map<Process, Process> copies) {
         AbstractStrategy result = new AbstractStrategy(copy.name){};
-        result.readyQueue = new PriorityQueue<>(copy.readyQueue.comparator());
+        result.readyQueue = new ReadyQueue(copy.readyQueue.comparator());
         // Copy readyQueue
         Iterator<Process> itr = copy.readyQueue.iterator();
         while (itr.hasNext()) {
-            result.readyQueue.add(new Process(itr.next()));
+            result.readyQueue.add(copies.get(itr.next()));
         }
         return result;
     }
@@ -36,16 +43,14 @@ public abstract class AbstractStrategy implements Strategy {
     @Override
     public void arrived(Process process) {
         readyQueue.add(process);
-        System.out.println("Process" + process.getPID() + " has arrived!");
     }
 
     @Override
     public void ready(Process process, int time) {
         process.incrementTracker();
-        blockedProcesses.remove(process);
         process.setReadyTime(time);
         readyQueue.add(process);
-        System.out.println("Process" + process.getPID() + " is ready!");
+        events.event(time, SchedulerHistory.UNBLOCK, process.getPID(), 0);
     }
 
     @Override
@@ -53,8 +58,8 @@ public abstract class AbstractStrategy implements Strategy {
         Process CPU = scheduler.getCPU();
         CPU.resetCurrentRuntime();
         CPU.incrementTracker();
+        CPU.setBlockedTime(scheduler.getTimer());
         blockedProcesses.add(CPU);
-        System.out.println("Process" + CPU.getPID() + " blocked!");
         scheduler.freeCPU();
     }
 
@@ -64,7 +69,6 @@ public abstract class AbstractStrategy implements Strategy {
         CPU.resetCurrentRuntime();
         CPU.setReadyTime(scheduler.getTimer());
         readyQueue.add(CPU);
-        System.out.println("Process" + CPU.getPID() + " preempted!");
         scheduler.freeCPU();
     }
 
@@ -80,31 +84,74 @@ public abstract class AbstractStrategy implements Strategy {
 
     @Override
     public void progressBlocked(int time) {
-        Iterator<Process> itr = blockedProcesses.iterator();
-        while (itr.hasNext()) {
-            Process curr = itr.next();
-            curr.decrementBurst(); // Perform I/O
-            if (curr.getCurrentBurst() == 0) {
-                // If we finished I/O
-                itr.remove(); //
-                ready(curr, time); // move to ready
-            }
+        // Only the processes whose I/O finishes now
+        while (!blockedProcesses.isEmpty() && blockedProcesses.peek().getIOCompletionTime() <= time) {
+            Process curr = blockedProcesses.poll();
+            curr.decrementBurst(curr.getCurrentBurst()); // Perform I/O
+            ready(curr, time); // move to ready
         }
     }
 
     @Override
     public void progressReady(int time) {
-        Iterator<Process> itr = readyQueue.iterator();
-        while (itr.hasNext()) {
-            itr.next().incrementWaitingTime();
+        // Nothing to do: waiting time is added from the ready time when a process
+        // leaves the ready queue (see Scheduler.work())
+    }
+
+    @Override
+    public void skipTicks(int ticks) {
+        // Nothing to do: blocked processes complete their I/O by time, and waiting
+        // time is added when a process leaves the ready queue
+    }
+
+    @Override
+    public int nextEventTime(Scheduler scheduler) {
+        Process CPU = scheduler.getCPU();
+        // A process dispatched this time unit has not been checked for preemption yet
+        if (CPU != null && CPU.getCurrentRuntime() == 0 && !readyQueue.isEmpty()) {
+            return scheduler.getTimer();
         }
+        return Integer.MAX_VALUE;
     }
 
     @Override
-    public PriorityQueue<Process> getReadyQueue() {
+    public ReadyQueue getReadyQueue() {
         return readyQueue;
     }
 
+    @Override
+    public int getNumReady() {
+        return readyQueue.size();
+    }
+
+    @Override
+    public void migrated(Process process) {
+        readyQueue.add(process);
+    }
+
+
+    @Override
+    public ReadyQueue getBlockedProcesses() {
+        return blockedProcesses;
+    }
+
+    /**
+     * For strategies made of other strategies, which must all share the same blocked processes
+     */
+    public void setBlockedProcesses(ReadyQueue blockedProcesses) {
+        this.blockedProcesses = blockedProcesses;
+    }
+
+    public EventSink getEventSink() {
+        return events;
+    }
+
+    /**
+     * The scheduler sets this to report events from the strategy along with its own
+     */
+    public void setEventSink(EventSink events) {
+        this.events = events;
+    }
 
     public int getNumStrategies() {
         return numStrategies;
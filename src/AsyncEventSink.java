@@ -0,0 +1,130 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands events to another sink on a background thread, through a bounded ring
+ * buffer, so the simulation only waits on output when the writer falls so far
+ * behind that the buffer is full. Optionally, events are then dropped and counted
+ * instead. Events must all come from one thread, the one that calls close().
+ */
+public class AsyncEventSink implements EventSink {
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    static final long IDLE_PARK_NSEC = 100000; // how long the writer sleeps when there is nothing to write
+    static final long FULL_PARK_NSEC = 10000; // how long the simulation sleeps when the buffer is full
+
+    private EventSink target;
+    private int mask;
+    private boolean dropWhenFull;
+
+    // The ring buffer, as parallel arrays
+    private int[] times;
+    private int[] types;
+    private int[] PIDs;
+    private int[] values;
+
+    private AtomicLong head = new AtomicLong(); // next event to write out, advanced by the writer
+    private AtomicLong tail = new AtomicLong(); // next free place, advanced by the simulation
+    private long headSeen; // head as the simulation last saw it
+    private long dropped;
+
+    private volatile boolean closed;
+    private Thread writer;
+
+    /**
+     * Delivers every event
+     */
+    public AsyncEventSink(EventSink target) {
+        this(target, DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * @param capacity: rounded up to a power of two
+     * @param dropWhenFull: drop events while the buffer is full instead of waiting
+     * for the writer to make room
+     */
+    public AsyncEventSink(EventSink target, int capacity, boolean dropWhenFull) {
+        this.target = target;
+        this.dropWhenFull = dropWhenFull;
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = size - 1;
+        times = new int[size];
+        types = new int[size];
+        PIDs = new int[size];
+        values = new int[size];
+        writer = new Thread(this::write, "event writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void event(int time, int type, int PID, int value) {
+        long t = tail.get();
+        if (t - headSeen > mask) {
+            headSeen = head.get();
+            while (t - headSeen > mask) {
+                if (dropWhenFull) {
+                    dropped++;
+                    return;
+                }
+                LockSupport.parkNanos(FULL_PARK_NSEC);
+                headSeen = head.get();
+            }
+        }
+        int i = (int) t & mask;
+        times[i] = time;
+        types[i] = type;
+        PIDs[i] = PID;
+        values[i] = value;
+        tail.lazySet(t + 1); // publishes the event to the writer
+    }
+
+    /**
+     * Run by the writer thread until closed and everything is written
+     */
+    private void write() {
+        long h = head.get();
+        while (true) {
+            boolean done = closed;
+            long t = tail.get();
+            if (h == t) {
+                if (done) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NSEC);
+                continue;
+            }
+            for (; h < t; h++) {
+                int i = (int) h & mask;
+                target.event(times[i], types[i], PIDs[i], values[i]);
+                head.lazySet(h + 1);
+            }
+        }
+        target.close();
+    }
+
+    /**
+     * Waits for every event to be written out
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped > 0) {
+            System.err.println(dropped + " events were dropped: the event writer fell behind");
+        }
+    }
+
+    /**
+     * How many events found the buffer full
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+}
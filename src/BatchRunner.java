@@ -0,0 +1,95 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Simulates one workload under every scheduling algorithm at once, each on its own
+ * thread and its own copy of the process table, then prints their performance
+ * measurements side by side.
+ */
+public class BatchRunner {
+
+    /**
+     * Usage: java BatchRunner "path_to_process_table.txt" [quantum] [-e]
+     * quantum: for round robin
+     * -e: use the event-driven engine
+     * @param args
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        boolean eventDriven = false;
+        ArrayList<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-e")) {
+                eventDriven = true;
+            }
+            else positional.add(arg);
+        }
+        Process[] table = Scheduler.readTable(positional.get(0));
+        int quantum = positional.size() == 2 ? Integer.parseInt(positional.get(1)) : 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(Scheduler.ALGORITHMS.length, Runtime.getRuntime().availableProcessors()));
+        ArrayList<Future<String>> results = new ArrayList<>();
+        try {
+            for (String algorithm : Scheduler.ALGORITHMS) {
+                Scheduler scheduler = new Scheduler(
+                        Scheduler.createStrategy(algorithm, table.length, quantum), Scheduler.copyTable(table));
+                scheduler.setEventDriven(eventDriven);
+                scheduler.setRecordHistory(false);
+                scheduler.setEventSink(EventSink.NONE);
+                results.add(pool.submit(() -> {
+                    scheduler.run();
+                    return scheduler.performanceMeasurements();
+                }));
+            }
+            ArrayList<String> measurements = new ArrayList<>();
+            for (Future<String> result : results) {
+                measurements.add(result.get());
+            }
+            displaySideBySide(measurements);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * One row per measurement ("Label: value" lines), one column per algorithm
+     */
+    public static void displaySideBySide(List<String> measurements) {
+        LinkedHashMap<String, String[]> rows = new LinkedHashMap<>();
+        for (int i = 0; i < measurements.size(); i++) {
+            for (String line : measurements.get(i).split("\n")) {
+                int colon = line.indexOf(": ");
+                if (colon < 0) {
+                    continue; // separator
+                }
+                String label = line.substring(0, colon);
+                if (!rows.containsKey(label)) {
+                    rows.put(label, new String[measurements.size()]);
+                }
+                rows.get(label)[i] = line.substring(colon + 2);
+            }
+        }
+        int labelWidth = 0;
+        int[] widths = new int[measurements.size()];
+        for (Map.Entry<String, String[]> row : rows.entrySet()) {
+            labelWidth = Math.max(labelWidth, row.getKey().length());
+            for (int i = 0; i < widths.length; i++) {
+                if (row.getValue()[i] != null) {
+                    widths[i] = Math.max(widths[i], row.getValue()[i].length());
+                }
+            }
+        }
+        for (Map.Entry<String, String[]> row : rows.entrySet()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-" + labelWidth + "s", row.getKey()));
+            for (int i = 0; i < widths.length; i++) {
+                String value = row.getValue()[i] == null ? "" : row.getValue()[i];
+                sb.append(" | ");
+                sb.append(String.format("%" + widths[i] + "s", value));
+            }
+            System.out.println(sb.toString());
+        }
+    }
+
+}
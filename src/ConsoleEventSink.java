@@ -0,0 +1,94 @@
+import java.io.PrintStream;
+
+/**
+ * Prints scheduling events as lines of text, leaving out those below a level
+ */
+public class ConsoleEventSink implements EventSink {
+
+    // Levels, from the most to the least detailed
+    public static final int DETAIL = 0; // priority and quantum changes
+    public static final int TIME = 1; // the start of every time unit
+    public static final int PROCESS = 2; // processes arriving, running, blocking, ...
+
+    private PrintStream out; // null for whatever System.out is at the time
+    private int level;
+
+    /**
+     * Prints to System.out
+     */
+    public ConsoleEventSink(int level) {
+        this(null, level);
+    }
+
+    public ConsoleEventSink(PrintStream out, int level) {
+        this.out = out;
+        this.level = level;
+    }
+
+    /**
+     * "none", "process", "time" or "detail"
+     * @return the level, or Integer.MAX_VALUE for none
+     */
+    public static int parseLevel(String name) {
+        switch (name) {
+            case "none":
+                return Integer.MAX_VALUE;
+            case "process":
+                return PROCESS;
+            case "time":
+                return TIME;
+            case "detail":
+                return DETAIL;
+        }
+        throw new IllegalArgumentException("Unknown level: " + name);
+    }
+
+    public static int levelOf(int type) {
+        switch (type) {
+            case SchedulerHistory.TIMER:
+                return TIME;
+            case SchedulerHistory.PRIORITY:
+            case SchedulerHistory.QUANTUM:
+                return DETAIL;
+            default:
+                return PROCESS;
+        }
+    }
+
+    @Override
+    public void event(int time, int type, int PID, int value) {
+        if (levelOf(type) >= level) {
+            (out != null ? out : System.out).println(describe(time, type, PID, value));
+        }
+    }
+
+    public static String describe(int time, int type, int PID, int value) {
+        switch (type) {
+            case SchedulerHistory.TIMER:
+                return "TIMER: " + time;
+            case SchedulerHistory.ARRIVE:
+                return "Process" + PID + " has arrived!";
+            case SchedulerHistory.DISPATCH:
+                return "Running Process" + PID;
+            case SchedulerHistory.PREEMPT:
+                return "Process" + PID + " preempted!";
+            case SchedulerHistory.BLOCK:
+                return "Process" + PID + " blocked!";
+            case SchedulerHistory.UNBLOCK:
+                return "Process" + PID + " is ready!";
+            case SchedulerHistory.COMPLETE:
+                return "Process" + PID + " completed!";
+            case SchedulerHistory.PRIORITY:
+                return "Process" + PID + " moved to priority " + value;
+            case SchedulerHistory.QUANTUM:
+                return "Quantum is now " + value;
+        }
+        return "Event " + type + " for Process" + PID;
+    }
+
+    @Override
+    public void close() {
+        (out != null ? out : System.out).flush();
+    }
+
+}
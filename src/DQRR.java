@@ -1,51 +1,88 @@
-import java.util.Iterator;
-import java.util.PriorityQueue;
-
+/**
+ * Round robin whose quantum is the average current burst of the processes
+ * waiting in the ready queue. The sum of those bursts is kept as processes enter
+ * and leave the queue, so the quantum is recomputed in constant time.
+ * Optionally the quantum is smoothed (an exponentially weighted moving average of
+ * the averages) and bounded.
+ */
 public class DQRR extends AbstractStrategy implements Strategy {
 
+    /**
+     * Told every time the quantum is recomputed
+     */
+    public interface StatsObserver {
+        void stats(long sumBurst, int avgBurst, int quantum);
+    }
+
     /**
      * DQRR is initially 0, our progression automatically changes these
      */
     private int quantum;
-    private int sumBurst;
+    private long sumBurst; // of the processes in the ready queue
     private int avgBurst;
 
+    private double smoothing; // weight of the newest average, 1 for none
+    private double smoothed; // the moving average
+    private int minQuantum;
+    private int maxQuantum;
+
+    private StatsObserver observer; // null unless someone asked for the stats
+
     public DQRR() {
+        this(1, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param smoothing: in (0, 1], how much each new average moves the quantum.
+     *                 1 uses the average as it is.
+     * @param minQuantum: the quantum never goes below this
+     * @param maxQuantum: or above this
+     */
+    public DQRR(double smoothing, int minQuantum, int maxQuantum) {
         super("Dynamic Quantum Round Robin");
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Smoothing must be in (0, 1]: " + smoothing);
+        }
+        this.smoothing = smoothing;
+        this.minQuantum = minQuantum;
+        this.maxQuantum = maxQuantum;
     }
 
     @Override
     public void arrived(Process process) {
-        super.arrived(process); // Add to queue and announce
-        sumBurst = sumBurst();
-        avgBurst = avgBurst();
-        quantum = avgBurst;
+        super.arrived(process); // Add to queue
+        sumBurst += process.getCurrentBurst();
+        updateQuantum(avgBurst());
     }
 
 
     @Override
     public void ready(Process process, int time) {
         super.ready(process, time);
-        sumBurst = sumBurst();
-        avgBurst = avgBurst();
+        sumBurst += process.getCurrentBurst();
         // When a process comes to the ready queue, update our quantum
-        quantum = avgBurst();
+        updateQuantum(avgBurst());
+    }
+
+    @Override
+    public void migrated(Process process) {
+        super.migrated(process);
+        sumBurst += process.getCurrentBurst();
+        updateQuantum(avgBurst());
     }
 
     @Override
     public void blocked(Scheduler scheduler) {
         super.blocked(scheduler);
-        sumBurst = sumBurst();
-        avgBurst = avgBurst();
-        quantum = avgBurst();
+        updateQuantum(avgBurst());
     }
 
     @Override
     public void preempt(Scheduler scheduler) {
+        Process CPU = scheduler.getCPU();
         super.preempt(scheduler);
-        sumBurst = sumBurst();
-        avgBurst = avgBurst();
-        quantum = avgBurst();
+        sumBurst += CPU.getCurrentBurst();
+        updateQuantum(avgBurst());
     }
 
     @Override
@@ -54,40 +91,55 @@ public class DQRR extends AbstractStrategy implements Strategy {
         return (CPU.getCurrentRuntime() >= quantum && !getReadyQueue().isEmpty());
     }
 
+    @Override
+    public int nextEventTime(Scheduler scheduler) {
+        Process CPU = scheduler.getCPU();
+        if (CPU == null || getReadyQueue().isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        // When the running process uses up the current quantum
+        return scheduler.getTimer() - 1 + Math.max(quantum - CPU.getCurrentRuntime(), 1);
+    }
+
     @Override
     public Process next() {
-        PriorityQueue<Process> ready = getReadyQueue();
+        ReadyQueue ready = getReadyQueue();
         Process next = ready.poll();
         if (next != null) {
+            sumBurst -= next.getCurrentBurst();
             if (ready.isEmpty()) {
-                quantum = next.getCurrentBurst();
                 sumBurst = 0;
                 avgBurst = 0;
+                updateQuantum(next.getCurrentBurst());
             }
-            else {
-                sumBurst = sumBurst();
-                avgBurst = avgBurst();
-                quantum = avgBurst;
-            }
+            else updateQuantum(avgBurst());
             return next;
         }
         return null;
     }
 
-    public int sumBurst() {
-        int sum = 0;
-        PriorityQueue<Process> ready = getReadyQueue();
-        Iterator<Process> itr = ready.iterator();
-        while (itr.hasNext()) {
-            sum += itr.next().getCurrentBurst();
+    /**
+     * Moves the quantum towards target, as smoothed and bounded
+     */
+    private void updateQuantum(int target) {
+        smoothed = smoothing == 1 ? target : smoothed + smoothing * (target - smoothed);
+        quantum = (int) Math.max(minQuantum, Math.min(maxQuantum, Math.round(smoothed)));
+        if (observer != null) {
+            observer.stats(sumBurst, avgBurst, quantum);
         }
-        return sum;
     }
 
+    public long sumBurst() {
+        return sumBurst;
+    }
+
+    /**
+     * Also remembers it, to fall back on when the ready queue is empty
+     */
     public int avgBurst() {
         int numProcessesWaiting = getReadyQueue().size();
         if (numProcessesWaiting > 0) {
-            return sumBurst / numProcessesWaiting;
+            avgBurst = (int) (sumBurst / numProcessesWaiting);
         }
         return avgBurst;
         // return Max(avgBurst, minimum);
@@ -97,13 +149,31 @@ public class DQRR extends AbstractStrategy implements Strategy {
         return quantum;
     }
 
-    public String displayStats() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("Current properties: [SUM=" + sumBurst + " AVG=" + avgBurst + " QTM=" + quantum + "]");
-        System.out.println(sb.toString());
-        return sb.toString();
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public int getMinQuantum() {
+        return minQuantum;
+    }
+
+    public int getMaxQuantum() {
+        return maxQuantum;
+    }
+
+    /**
+     * The stats are only put together while someone is observing them
+     */
+    public void setStatsObserver(StatsObserver observer) {
+        this.observer = observer;
     }
 
+    public String displayStats() {
+        return statsToString(sumBurst, avgBurst, quantum);
+    }
 
+    public static String statsToString(long sumBurst, int avgBurst, int quantum) {
+        return "Current properties: [SUM=" + sumBurst + " AVG=" + avgBurst + " QTM=" + quantum + "]";
+    }
 
 }
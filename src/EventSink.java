@@ -0,0 +1,44 @@
+/**
+ * Where the scheduler reports scheduling events as they happen: processes arriving,
+ * running, blocking, becoming ready, being preempted and completing, priority and
+ * quantum changes, and the start of every time unit. Event types and values are
+ * those of SchedulerHistory.
+ */
+public interface EventSink {
+
+    /**
+     * Drops every event, for benchmarks and batch runs
+     */
+    EventSink NONE = (time, type, PID, value) -> { };
+
+    /**
+     * Reports every event to both sinks
+     */
+    static EventSink both(EventSink first, EventSink second) {
+        return new EventSink() {
+            @Override
+            public void event(int time, int type, int PID, int value) {
+                first.event(time, type, PID, value);
+                second.event(time, type, PID, value);
+            }
+
+            @Override
+            public void close() {
+                first.close();
+                second.close();
+            }
+        };
+    }
+
+    /**
+     * @param PID: -1 for events that are not about a process
+     */
+    void event(int time, int type, int PID, int value);
+
+    /**
+     * Called once the run is over. Anything still buffered must be written out.
+     */
+    default void close() {
+    }
+
+}
@@ -0,0 +1,197 @@
+import javax.swing.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the scheduling events of a run to a file as it happens, so it can be
+ * animated later without simulating it again. Every int is little-endian. The
+ * header is
+ *   MAGIC, VERSION, number of processes, quantum, length of the algorithm name,
+ *   the algorithm name (UTF-8, as given to Scheduler.createStrategy())
+ * followed by one fixed-size record per event:
+ *   time, type, PID, value (see SchedulerHistory; the queue level for ARRIVE and PRIORITY)
+ * The last record is a TIMER event for the last time unit simulated.
+ * Files whose name ends with .gz are gzip-compressed.
+ */
+public class EventTrace implements EventSink {
+
+    static final int MAGIC = 0x45435254; // "TRCE"
+    static final int VERSION = 1;
+    static final int RECORD_BYTES = 16;
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private WritableByteChannel out;
+    private ByteBuffer buffer;
+    private int lastTime = -1; // last time unit started
+
+    public EventTrace(String path, String algorithm, int quantum, int numProcesses) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = path.endsWith(".gz") ?
+                Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) : channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] name = algorithm.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(numProcesses).putInt(quantum).putInt(name.length).put(name);
+    }
+
+    @Override
+    public void event(int time, int type, int PID, int value) {
+        if (type == SchedulerHistory.TIMER) {
+            lastTime = time; // one is written at the end instead of one every time unit
+            return;
+        }
+        put(time, type, PID, value);
+    }
+
+    private void put(int time, int type, int PID, int value) {
+        if (buffer.remaining() < RECORD_BYTES) {
+            drain();
+        }
+        buffer.putInt(time).putInt(type).putInt(PID).putInt(value);
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        put(lastTime, SchedulerHistory.TIMER, -1, 0);
+        drain();
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**********
+     * REPLAY *
+     **********/
+
+    /**
+     * A run read back from a trace
+     */
+    public static class Replay {
+        private String algorithm;
+        private int quantum;
+        private AbstractStrategy strategy;
+        private SchedulerHistory history;
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public int getQuantum() {
+            return quantum;
+        }
+
+        /**
+         * A fresh strategy like the one traced, which the animation takes its queues from
+         */
+        public AbstractStrategy getStrategy() {
+            return strategy;
+        }
+
+        public SchedulerHistory getHistory() {
+            return history;
+        }
+    }
+
+    /**
+     * Usage: java EventTrace "path_to_process_table.txt" "path_to_trace"
+     * Animates a traced run of the process table
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        Replay replay = read(args[1], Scheduler.readTable(args[0]));
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                JFrame frame = new SchedulerAnimation(replay.getHistory(), replay.getStrategy());
+                frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                frame.pack();
+                frame.setLocationRelativeTo(null); // center the application window
+                frame.setVisible(true);            // show it
+            }
+        });
+    }
+
+    /**
+     * Rebuilds the history of a traced run of table
+     */
+    public static Replay read(String path, Process[] table) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try (ReadableByteChannel in = isGzip(channel) ?
+                Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE)) : channel) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+            if (fill(in, buffer, 20).remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(path + " is not an event trace");
+            }
+            int numProcesses = buffer.getInt();
+            if (numProcesses != table.length) {
+                throw new IOException(path + " traced " + numProcesses + " processes, not " + table.length);
+            }
+            Replay result = new Replay();
+            result.quantum = buffer.getInt();
+            byte[] name = new byte[buffer.getInt()];
+            fill(in, buffer, name.length).get(name);
+            result.algorithm = new String(name, StandardCharsets.UTF_8);
+            result.strategy = Scheduler.createStrategy(result.algorithm, numProcesses, result.quantum);
+            result.history = new SchedulerHistory();
+            int lastTime = -1;
+            while (fill(in, buffer, RECORD_BYTES).remaining() >= RECORD_BYTES) {
+                int time = buffer.getInt();
+                int type = buffer.getInt();
+                int PID = buffer.getInt();
+                int value = buffer.getInt();
+                if (type == SchedulerHistory.TIMER) {
+                    lastTime = time;
+                }
+                else result.history.addEvent(time, type, PID, value);
+            }
+            result.history.replay(Scheduler.initialState(result.strategy, Scheduler.copyTable(table)), lastTime);
+            return result;
+        }
+    }
+
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, 0);
+        return !magic.hasRemaining() && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /**
+     * Reads until at least count bytes are left in buffer, or the end of the input
+     */
+    private static ByteBuffer fill(ReadableByteChannel in, ByteBuffer buffer, int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return buffer;
+        }
+        buffer.compact();
+        while (buffer.position() < count && in.read(buffer) >= 0) {
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+}
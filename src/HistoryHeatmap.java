@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * A scheduler history boiled down to a fixed number of buckets, for drawing runs
+ * with too many processes or time units to show one by one. Processes are grouped
+ * into rows of consecutive PIDs and time units into columns, and each cell counts
+ * how many (process, time unit) pairs in it were running, ready or blocked. The
+ * length of each ready queue and of the blocked list is kept per column too, as
+ * its maximum over the column. Built in one pass over the events, in
+ * O(events + rows * columns).
+ */
+public class HistoryHeatmap {
+
+    // States, as indexes into the counts
+    static final int RUNNING = 0;
+    static final int READY = 1;
+    static final int BLOCKED = 2;
+    static final int NUM_STATES = 3;
+    private static final int NONE = -1; // not arrived yet or completed
+
+    private int numProcesses;
+    private int numTimeUnits;
+    private int rows, columns;
+    private int PIDsPerRow, timeUnitsPerColumn;
+
+    private long[][] counts; // [state][row * columns + column]
+    private int[][] queueLengths; // [queue][column], the blocked list last
+
+    /**
+     * @param numQueues: how many ready queues the strategy has. With more than one,
+     *                 processes are in the one of their priority, as in MLFQ.
+     * @param maxRows: at most this many rows, fewer if there are fewer processes
+     * @param maxColumns: at most this many columns, fewer if there are fewer time units
+     */
+    public HistoryHeatmap(SchedulerHistory history, int numProcesses, int numQueues,
+                          int maxRows, int maxColumns) {
+        this.numProcesses = numProcesses;
+        numTimeUnits = Math.max(history.size(), 1);
+        PIDsPerRow = (Math.max(numProcesses, 1) + maxRows - 1) / maxRows;
+        rows = (Math.max(numProcesses, 1) + PIDsPerRow - 1) / PIDsPerRow;
+        timeUnitsPerColumn = (numTimeUnits + maxColumns - 1) / maxColumns;
+        columns = (numTimeUnits + timeUnitsPerColumn - 1) / timeUnitsPerColumn;
+        counts = new long[NUM_STATES][rows * columns];
+        queueLengths = new int[numQueues + 1][columns];
+        build(history, numQueues);
+    }
+
+    private void build(SchedulerHistory history, int numQueues) {
+        int[] state = new int[numProcesses];
+        int[] since = new int[numProcesses]; // when it got into its state
+        int[] queue = new int[numProcesses]; // the ready queue it is or would be in
+        Arrays.fill(state, NONE);
+        // Whole columns of a state are added to a row through differences, so a long
+        // stretch costs the same as a short one
+        long[][] differences = new long[NUM_STATES][rows * (columns + 1)];
+        int[] lengths = new int[numQueues + 1]; // at the end of lastTime
+        int lastTime = 0;
+        for (int i = 0; i < history.getNumEvents(); i++) {
+            int time = history.getEventTime(i);
+            int type = history.getEventType(i);
+            int PID = history.getEventPID(i);
+            if (PID < 0 || PID >= numProcesses) {
+                continue; // e.g. QUANTUM
+            }
+            int next = state[PID];
+            int nextQueue = queue[PID];
+            switch (type) {
+                case SchedulerHistory.ARRIVE:
+                    next = READY;
+                    if (numQueues > 1) {
+                        nextQueue = history.getEventValue(i);
+                    }
+                    break;
+                case SchedulerHistory.PREEMPT:
+                case SchedulerHistory.UNBLOCK:
+                    next = READY;
+                    break;
+                case SchedulerHistory.DISPATCH:
+                    next = RUNNING;
+                    break;
+                case SchedulerHistory.BLOCK:
+                    next = BLOCKED;
+                    break;
+                case SchedulerHistory.COMPLETE:
+                    next = NONE;
+                    break;
+                case SchedulerHistory.PRIORITY:
+                    if (numQueues > 1) {
+                        nextQueue = history.getEventValue(i);
+                    }
+                    break;
+            }
+            if (next == state[PID] && nextQueue == queue[PID]) {
+                continue;
+            }
+            if (time > lastTime) {
+                // Nothing changed from the end of lastTime until now
+                addQueueLengths(lengths, lastTime, time - 1);
+                lastTime = time;
+            }
+            if (state[PID] != NONE) {
+                addStretch(differences, state[PID], PID / PIDsPerRow, since[PID], time);
+            }
+            if (state[PID] == READY) {
+                lengths[queue[PID]]--;
+            }
+            else if (state[PID] == BLOCKED) {
+                lengths[numQueues]--;
+            }
+            if (next == READY) {
+                lengths[nextQueue]++;
+            }
+            else if (next == BLOCKED) {
+                lengths[numQueues]++;
+            }
+            state[PID] = next;
+            queue[PID] = nextQueue;
+            since[PID] = time;
+        }
+        addQueueLengths(lengths, lastTime, numTimeUnits - 1);
+        for (int PID = 0; PID < numProcesses; PID++) {
+            if (state[PID] != NONE) {
+                addStretch(differences, state[PID], PID / PIDsPerRow, since[PID], numTimeUnits);
+            }
+        }
+        for (int s = 0; s < NUM_STATES; s++) {
+            for (int row = 0; row < rows; row++) {
+                long sum = 0;
+                for (int column = 0; column < columns; column++) {
+                    sum += differences[s][row * (columns + 1) + column];
+                    counts[s][row * columns + column] += sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * The queues had the given lengths from time start to end
+     */
+    private void addQueueLengths(int[] lengths, int start, int end) {
+        int last = Math.min(end / timeUnitsPerColumn, columns - 1);
+        for (int column = start / timeUnitsPerColumn; column <= last; column++) {
+            for (int q = 0; q < lengths.length; q++) {
+                queueLengths[q][column] = Math.max(queueLengths[q][column], lengths[q]);
+            }
+        }
+    }
+
+    /**
+     * Counts time units start to end - 1 of a process of row in state
+     */
+    private void addStretch(long[][] differences, int state, int row, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        int first = start / timeUnitsPerColumn;
+        int last = (end - 1) / timeUnitsPerColumn;
+        long[] cells = counts[state];
+        if (first == last) {
+            cells[row * columns + first] += end - start;
+            return;
+        }
+        cells[row * columns + first] += (first + 1) * timeUnitsPerColumn - start;
+        cells[row * columns + last] += end - last * timeUnitsPerColumn;
+        if (first + 1 < last) {
+            differences[state][row * (columns + 1) + first + 1] += timeUnitsPerColumn;
+            differences[state][row * (columns + 1) + last] -= timeUnitsPerColumn;
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getPIDsPerRow() {
+        return PIDsPerRow;
+    }
+
+    public int getTimeUnitsPerColumn() {
+        return timeUnitsPerColumn;
+    }
+
+    public int getNumTimeUnits() {
+        return numTimeUnits;
+    }
+
+    /**
+     * The fraction of the cell's (process, time unit) pairs that were in state
+     */
+    public double getFraction(int state, int row, int column) {
+        int PIDs = Math.min(PIDsPerRow, numProcesses - row * PIDsPerRow);
+        int timeUnits = Math.min(timeUnitsPerColumn, numTimeUnits - column * timeUnitsPerColumn);
+        return (double) counts[state][row * columns + column] / ((long) PIDs * timeUnits);
+    }
+
+    /**
+     * The longest the ready queue (or the blocked list, for the last queue) was
+     * during the column
+     */
+    public int getQueueLength(int queue, int column) {
+        return queueLengths[queue][column];
+    }
+
+    public int getNumQueues() {
+        return queueLengths.length - 1;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Counts how many times each value was recorded, in buckets whose width grows with
+ * the value (as HdrHistogram does), so percentiles can be read at any time from a
+ * fixed amount of memory. Values below SUB_BUCKETS are counted exactly; above that
+ * each power of two is split into SUB_BUCKETS / 2 buckets, so a percentile is off
+ * by less than 2 / SUB_BUCKETS of its value (under 1.6%). Recording is constant time.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int HALF = SUB_BUCKETS / 2;
+    // Enough buckets for any int
+    static final int NUM_BUCKETS = SUB_BUCKETS + (31 - SUB_BUCKET_BITS) * HALF;
+
+    private long[] counts;
+    private long count;
+    private long sum;
+    private int max;
+
+    public LatencyHistogram() {
+        counts = new long[NUM_BUCKETS];
+    }
+
+    /**
+     * @param value: must not be negative
+     */
+    public void record(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative latency: " + value);
+        }
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds everything recorded in other to this
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * The smallest value that percentile percent of the recorded values are at or
+     * below, rounded up to the end of its bucket. 0 if nothing was recorded.
+     * @param percentile: in [0, 100]
+     */
+    public int valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(percentile / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (int) Math.min(highestInBucket(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(int value) {
+        if (value < SUB_BUCKETS) {
+            return value;
+        }
+        // The top SUB_BUCKET_BITS bits of value, the highest being 1
+        int shift = 32 - Integer.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF + (value >>> shift) - HALF;
+    }
+
+    private static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+        long top = (bucket - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,177 @@
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histograms of the wait, turnaround and response times of completed processes,
+ * over all of them and by the priority they finished with (the level for MLFQ).
+ */
+public class LatencyReport {
+
+    static final int WAIT = 0;
+    static final int TURNAROUND = 1;
+    static final int RESPONSE = 2;
+    static final String[] METRICS = {"Wait Time", "Turnaround Time", "Response Time"};
+
+    static final double[] DEFAULT_PERCENTILES = {50, 90, 99};
+
+    private LatencyHistogram[] overall;
+    private TreeMap<Integer, LatencyHistogram[]> byPriority;
+
+    public LatencyReport() {
+        overall = newHistograms();
+        byPriority = new TreeMap<>();
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] result = new LatencyHistogram[METRICS.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new LatencyHistogram();
+        }
+        return result;
+    }
+
+    /**
+     * Call once process has completed
+     */
+    public void record(Process process) {
+        LatencyHistogram[] group = byPriority.get(process.getPriority());
+        if (group == null) {
+            group = newHistograms();
+            byPriority.put(process.getPriority(), group);
+        }
+        record(overall, process);
+        record(group, process);
+    }
+
+    private static void record(LatencyHistogram[] histograms, Process process) {
+        histograms[WAIT].record(process.getWaitingTime());
+        histograms[TURNAROUND].record(process.getTurnaroundTime());
+        histograms[RESPONSE].record(process.getResponseTime());
+    }
+
+    /**
+     * Adds everything recorded in other to this, e.g. to combine several CPUs
+     */
+    public void add(LatencyReport other) {
+        add(overall, other.overall);
+        for (Map.Entry<Integer, LatencyHistogram[]> entry : other.byPriority.entrySet()) {
+            LatencyHistogram[] group = byPriority.get(entry.getKey());
+            if (group == null) {
+                group = newHistograms();
+                byPriority.put(entry.getKey(), group);
+            }
+            add(group, entry.getValue());
+        }
+    }
+
+    private static void add(LatencyHistogram[] to, LatencyHistogram[] from) {
+        for (int i = 0; i < to.length; i++) {
+            to[i].add(from[i]);
+        }
+    }
+
+    public LatencyHistogram getHistogram(int metric) {
+        return overall[metric];
+    }
+
+    /**
+     * Null if no process finished with that priority
+     */
+    public LatencyHistogram getHistogram(int metric, int priority) {
+        LatencyHistogram[] group = byPriority.get(priority);
+        return group == null ? null : group[metric];
+    }
+
+    /**
+     * One "Label: value" line per metric, e.g.
+     * "Wait Time p50/p90/p99/max: 4/12/30/41", then the same for each priority
+     * (prefixed "Priority 2 ", or "Level 2 " if byLevel) when there is more than one.
+     */
+    public String toString(double[] percentiles, boolean byLevel) {
+        StringBuilder sb = new StringBuilder();
+        String header = header(percentiles);
+        append(sb, "", header, overall, percentiles);
+        if (byPriority.size() > 1) {
+            for (Map.Entry<Integer, LatencyHistogram[]> entry : byPriority.entrySet()) {
+                String prefix = (byLevel ? "Level " : "Priority ") + entry.getKey() + " ";
+                append(sb, prefix, header, entry.getValue(), percentiles);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String prefix, String header,
+                               LatencyHistogram[] histograms, double[] percentiles) {
+        for (int i = 0; i < METRICS.length; i++) {
+            sb.append(prefix).append(METRICS[i]).append(' ').append(header).append(": ");
+            for (double percentile : percentiles) {
+                sb.append(histograms[i].valueAtPercentile(percentile)).append('/');
+            }
+            sb.append(histograms[i].getMax()).append('\n');
+        }
+    }
+
+    /**
+     * e.g. "p50/p99.9/max"
+     */
+    private static String header(double[] percentiles) {
+        StringBuilder sb = new StringBuilder();
+        for (double percentile : percentiles) {
+            sb.append(name(percentile)).append('/');
+        }
+        return sb.append("max").toString();
+    }
+
+    /**
+     * e.g. "p50", "p99.9"
+     */
+    private static String name(double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return "p" + (long) percentile;
+        }
+        return "p" + percentile;
+    }
+
+    /**
+     * Adds the names of a field per percentile and the maximum of each metric, e.g.
+     * "wait_p50", "wait_p99.9", "wait_max", in the order of addValues()
+     */
+    public static void addFieldNames(List<String> fields, double[] percentiles) {
+        for (String metric : METRICS) {
+            String name = metric.substring(0, metric.indexOf(' ')).toLowerCase();
+            for (double percentile : percentiles) {
+                fields.add(name + "_" + name(percentile));
+            }
+            fields.add(name + "_max");
+        }
+    }
+
+    /**
+     * Adds the value of each field of addFieldNames(), over all the processes
+     */
+    public void addValues(List<Object> values, double[] percentiles) {
+        for (LatencyHistogram histogram : overall) {
+            for (double percentile : percentiles) {
+                values.add(histogram.valueAtPercentile(percentile));
+            }
+            values.add(histogram.getMax());
+        }
+    }
+
+    /**
+     * Parses a comma-separated list like "50,90,99,99.9"
+     */
+    public static double[] parsePercentiles(String list) {
+        String[] parts = list.split(",");
+        double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Double.parseDouble(parts[i].trim());
+            if (result[i] < 0 || result[i] > 100) {
+                throw new IllegalArgumentException("Percentile out of range: " + parts[i]);
+            }
+        }
+        return result;
+    }
+
+}
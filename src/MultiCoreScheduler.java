@@ -0,0 +1,516 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Simulates several CPUs. Each CPU is a Scheduler of its own, with no arrivals,
+ * driven one time unit at a time alongside the others. How the ready processes are
+ * shared between the CPUs depends on the load balancing:
+ * GLOBAL: one strategy and ready queue for every CPU
+ * REBALANCE: a strategy per CPU, and every period time units ready processes are
+ * moved from the busiest CPUs to the least busy
+ * STEAL: a strategy per CPU, and a CPU with nothing to run takes the next process
+ * of the CPU with the most waiting
+ * Arriving processes go to the CPU with the fewest processes. Blocked processes
+ * return to the CPU they blocked on.
+ */
+public class MultiCoreScheduler {
+
+    // Load balancing
+    public static final int GLOBAL = 0;
+    public static final int REBALANCE = 1;
+    public static final int STEAL = 2;
+
+    private Scheduler[] cores;
+    private AbstractStrategy[] strategies; // one for every CPU, or a single one for GLOBAL
+    private int balance;
+    private int period; // how often REBALANCE moves processes
+    private EventSink eventSink;
+
+    private int numProcesses;
+    private Process[] arrivals; // Process table sorted by arrival time
+    private int nextArrival;
+    private ProcessStream source; // where arrivals are read from instead, if streaming
+
+    private int timer;
+    private int numCompleted;
+    private long migrations; // ready processes moved between CPUs
+    private boolean migrated; // in the time unit just worked
+    private boolean eventDriven;
+    private double[] percentiles; // which ones performanceMeasurements() prints
+
+    /**
+     * @param strategies: one per CPU (see createStrategies()). For GLOBAL every CPU
+     *                  uses the first.
+     * @param balance: GLOBAL, REBALANCE or STEAL
+     * @param period: how often REBALANCE moves processes, in time units
+     */
+    public MultiCoreScheduler(AbstractStrategy[] strategies, int balance, int period, Process[] table) {
+        this(strategies, balance, period, table.length);
+        // Stable sort, so processes arriving together keep their order in the table
+        arrivals = table.clone();
+        Arrays.sort(arrivals, Comparator.comparingInt(Process::getArrivalTime));
+    }
+
+    /**
+     * Streams the processes from source as they arrive, as Scheduler does
+     */
+    public MultiCoreScheduler(AbstractStrategy[] strategies, int balance, int period, ProcessStream source) {
+        this(strategies, balance, period, source.getNumProcesses());
+        this.source = source;
+        arrivals = new Process[0];
+        for (Scheduler core : cores) {
+            core.releaseTo(source);
+        }
+    }
+
+    private MultiCoreScheduler(AbstractStrategy[] strategies, int balance, int period, int numProcesses) {
+        if (balance != GLOBAL && balance != REBALANCE && balance != STEAL) {
+            throw new IllegalArgumentException("Unknown load balancing: " + balance);
+        }
+        if (balance == REBALANCE && period <= 0) {
+            throw new IllegalArgumentException("The rebalancing period must be positive: " + period);
+        }
+        int numCores = strategies.length;
+        if (balance == GLOBAL) {
+            strategies = new AbstractStrategy[] {strategies[0]};
+        }
+        this.strategies = strategies;
+        this.balance = balance;
+        this.period = period;
+        this.numProcesses = numProcesses;
+        percentiles = LatencyReport.DEFAULT_PERCENTILES;
+        cores = new Scheduler[numCores];
+        for (int i = 0; i < numCores; i++) {
+            cores[i] = new Scheduler(strategyOf(i), new Process[0]);
+            cores[i].setRecordHistory(false);
+        }
+        setEventSink(new ConsoleEventSink(ConsoleEventSink.TIME));
+    }
+
+    /**
+     * "global", "rebalance" or "steal"
+     */
+    public static int parseBalance(String name) {
+        switch (name) {
+            case "global":
+                return GLOBAL;
+            case "rebalance":
+                return REBALANCE;
+            case "steal":
+                return STEAL;
+        }
+        throw new IllegalArgumentException("Unknown load balancing: " + name);
+    }
+
+    public static String balanceName(int balance) {
+        return balance == GLOBAL ? "global" : balance == REBALANCE ? "rebalance" : "steal";
+    }
+
+    /**
+     * The strategies for numCores CPUs: one shared for GLOBAL, one each otherwise.
+     * How long a process has run at its MLFQ level is kept with the process, so a
+     * process moved to another CPU is not demoted late.
+     */
+    public static AbstractStrategy[] createStrategies(String algorithm, int numProcesses, int quantum,
+                                                      int numCores, int balance) {
+        AbstractStrategy[] result = new AbstractStrategy[numCores];
+        for (int i = 0; i < numCores; i++) {
+            if (balance == GLOBAL && i > 0) {
+                result[i] = result[0];
+            }
+            else if (algorithm.equals("MLFQ")) {
+                result[i] = new SimpleMLFQ();
+            }
+            else result[i] = Scheduler.createStrategy(algorithm, numProcesses, quantum);
+        }
+        return result;
+    }
+
+    /**
+     * One time unit on every CPU:
+     * 1. Handle arriving processes (if any), each on the CPU with the fewest processes
+     * 2. Progress blocked and ready processes
+     * 3. Make progress on every CPU that is occupied
+     * 4. REBALANCE: move ready processes between CPUs, every period time units
+     * 5. Assign the next process to every CPU that is IDLE, stealing one if it has
+     * none of its own
+     */
+    public void work() {
+        eventSink.event(timer, SchedulerHistory.TIMER, -1, 0);
+        migrated = false;
+        while (nextArrivalTime() <= timer) {
+            Process process = source != null ? source.next() : arrivals[nextArrival++];
+            strategyOf(balance == GLOBAL ? 0 : leastLoaded()).arrived(process);
+            process.setReadyTime(timer);
+            eventSink.event(timer, SchedulerHistory.ARRIVE, process.getPID(), process.getPriority());
+        }
+        for (AbstractStrategy strategy : strategies) {
+            strategy.progressBlocked(timer);
+            strategy.progressReady(timer);
+        }
+        int completed = 0;
+        for (Scheduler core : cores) {
+            if (core.getCPU() != null) {
+                core.progressCPU();
+            }
+            completed += core.getNumCompleted();
+        }
+        numCompleted = completed;
+        if (balance == REBALANCE && timer % period == 0) {
+            rebalance();
+        }
+        int numReady = -1; // what is left to steal, counted when first needed
+        for (int i = 0; i < cores.length; i++) {
+            Scheduler core = cores[i];
+            if (core.getCPU() == null) {
+                Process next = strategyOf(i).next();
+                if (next == null && balance == STEAL) {
+                    if (numReady < 0) {
+                        numReady = numReady();
+                    }
+                    if (numReady > 0) {
+                        next = steal(i);
+                        numReady--;
+                    }
+                }
+                if (next != null) {
+                    core.dispatch(next);
+                } else core.incrementIdle();
+            }
+            core.incrementTimer();
+        }
+        timer++;
+    }
+
+    /**
+     * The event-driven engine: after work(), jumps to the next time unit in which
+     * any CPU has something happen, as Scheduler.skipToNextEvent() does for one
+     */
+    public void skipToNextEvent() {
+        // A CPU whose ready processes were moved may have to be preempted now
+        if (migrated) {
+            return;
+        }
+        int next = nextArrivalTime();
+        for (Scheduler core : cores) {
+            next = Math.min(next, core.nextEventTime());
+        }
+        if (balance == REBALANCE && isUnbalanced()) {
+            next = Math.min(next, (timer + period - 1) / period * period);
+        }
+        if (next == Integer.MAX_VALUE) {
+            return;
+        }
+        int skipped = next - timer;
+        if (skipped <= 0) {
+            return;
+        }
+        for (AbstractStrategy strategy : strategies) {
+            strategy.skipTicks(skipped);
+        }
+        for (Scheduler core : cores) {
+            core.elapse(skipped);
+        }
+        timer += skipped;
+    }
+
+    /**
+     * Simulates until every process has completed
+     */
+    public void run() {
+        long start = System.nanoTime();
+        long lastProgress = start;
+        while (!terminate()) {
+            work();
+            if (eventDriven && !terminate()) {
+                skipToNextEvent();
+            }
+            long now = System.nanoTime();
+            if (now - lastProgress >= Scheduler.PROGRESS_PERIOD_NSEC) {
+                lastProgress = now;
+                System.err.printf("%s on %d CPUs: %d/%d processes completed, time = %d%n",
+                        strategies[0].getName(), cores.length, getNumCompleted(), numProcesses, timer);
+            }
+        }
+    }
+
+    public boolean terminate() {
+        return getNumCompleted() == numProcesses;
+    }
+
+    private AbstractStrategy strategyOf(int core) {
+        return strategies[balance == GLOBAL ? 0 : core];
+    }
+
+    /**
+     * The CPU with the fewest ready and running processes, the first of them on ties
+     */
+    private int leastLoaded() {
+        int result = 0;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < cores.length; i++) {
+            int load = strategies[i].getNumReady() + (cores[i].getCPU() != null ? 1 : 0);
+            if (load < least) {
+                least = load;
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private int numReady() {
+        int result = 0;
+        for (AbstractStrategy strategy : strategies) {
+            result += strategy.getNumReady();
+        }
+        return result;
+    }
+
+    /**
+     * Takes the next process of the CPU with the most ready processes, for the
+     * CPU thief. null if none are waiting anywhere.
+     */
+    private Process steal(int thief) {
+        int victim = -1;
+        int most = 0;
+        for (int i = 0; i < cores.length; i++) {
+            int numReady = strategies[i].getNumReady();
+            if (i != thief && numReady > most) {
+                most = numReady;
+                victim = i;
+            }
+        }
+        if (victim < 0) {
+            return null;
+        }
+        migrations++;
+        migrated = true;
+        return strategies[victim].next();
+    }
+
+    /**
+     * Moves ready processes from the CPUs with more than their share to those with
+     * less, until none has more than its share (rounded up)
+     */
+    private void rebalance() {
+        int[] load = new int[cores.length];
+        int total = 0;
+        for (int i = 0; i < cores.length; i++) {
+            load[i] = strategies[i].getNumReady();
+            total += load[i];
+        }
+        int share = (total + cores.length - 1) / cores.length;
+        int to = 0;
+        for (int from = 0; from < cores.length; from++) {
+            while (load[from] > share) {
+                while (load[to] >= share) {
+                    to++;
+                }
+                strategies[to].migrated(strategies[from].next());
+                load[from]--;
+                load[to]++;
+                migrations++;
+                migrated = true;
+            }
+        }
+    }
+
+    /**
+     * Would rebalance() move anything?
+     */
+    private boolean isUnbalanced() {
+        int total = 0;
+        int most = 0;
+        for (AbstractStrategy strategy : strategies) {
+            total += strategy.getNumReady();
+            most = Math.max(most, strategy.getNumReady());
+        }
+        return most > (total + cores.length - 1) / cores.length;
+    }
+
+    /**
+     * When the next process arrives, Integer.MAX_VALUE if none are left
+     */
+    private int nextArrivalTime() {
+        if (source != null) {
+            return source.peek() != null ? source.peek().getArrivalTime() : Integer.MAX_VALUE;
+        }
+        return nextArrival < arrivals.length ? arrivals[nextArrival].getArrivalTime() : Integer.MAX_VALUE;
+    }
+
+    public Scheduler[] getCores() {
+        return cores;
+    }
+
+    public int getNumCores() {
+        return cores.length;
+    }
+
+    public int getNumProcesses() {
+        return numProcesses;
+    }
+
+    public int getNumCompleted() {
+        return numCompleted;
+    }
+
+    public int getTimer() {
+        return timer;
+    }
+
+    public long getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * Context switches on every CPU, a CPU's first dispatch not being one
+     */
+    public int getContextSwitch() {
+        int result = 0;
+        for (Scheduler core : cores) {
+            result += contextSwitches(core);
+        }
+        return result;
+    }
+
+    private static int contextSwitches(Scheduler core) {
+        return Math.max(core.getContextSwitch(), 0);
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    /**
+     * Which percentiles of wait, turnaround and response time performanceMeasurements() prints
+     */
+    public void setPercentiles(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Writes a row for every process as it completes, on whichever CPU
+     */
+    public void setExporter(ResultExporter exporter) {
+        for (Scheduler core : cores) {
+            core.setExporter(exporter);
+        }
+    }
+
+    public EventSink getEventSink() {
+        return eventSink;
+    }
+
+    /**
+     * Events are printed to the console by default. Call before running.
+     */
+    public void setEventSink(EventSink eventSink) {
+        this.eventSink = eventSink;
+        for (Scheduler core : cores) {
+            core.setEventSink(eventSink);
+        }
+    }
+
+    /********************************
+     * COMPUTE PERFORMANCE AVERAGES *
+     ********************************/
+
+    public double averageWait() {
+        long total = 0;
+        for (Scheduler core : cores) {
+            total += core.getTotalWait();
+        }
+        return (double) total / numProcesses;
+    }
+
+    public double averageTurnaround() {
+        long total = 0;
+        for (Scheduler core : cores) {
+            total += core.getTotalTurnaround();
+        }
+        return (double) total / numProcesses;
+    }
+
+    public double averageResponse() {
+        long total = 0;
+        for (Scheduler core : cores) {
+            total += core.getTotalResponse();
+        }
+        return (double) total / numProcesses;
+    }
+
+    /**
+     * Those of every CPU together
+     */
+    public LatencyReport getLatencies() {
+        LatencyReport result = new LatencyReport();
+        for (Scheduler core : cores) {
+            result.add(core.getLatencies());
+        }
+        return result;
+    }
+
+    /**
+     * Averaged over the CPUs
+     */
+    public double utilization() {
+        double total = 0;
+        for (Scheduler core : cores) {
+            total += core.utilization();
+        }
+        return total / cores.length;
+    }
+
+    public float throughput() {
+        float numProcess = numProcesses;
+        return numProcess / (timer - 1);
+    }
+
+    /**
+     * Appends the performance measurements to the file at path, as one row of
+     * Scheduler.summaryFields() (see ResultExporter)
+     */
+    public void exportSummary(String path) throws IOException {
+        ArrayList<Object> values = new ArrayList<>();
+        Collections.addAll(values, strategies[0].getName(), getNumProcesses(), cores.length, timer - 1,
+                utilization() * 100, (double) throughput(), averageWait(), averageTurnaround(),
+                averageResponse(), getContextSwitch(), balanceName(balance), migrations);
+        getLatencies().addValues(values, percentiles);
+        ResultExporter.append(path, Scheduler.summaryFields(percentiles), values.toArray());
+    }
+
+    public void displayPerformanceMeasurements() {
+        System.out.print(performanceMeasurements());
+    }
+
+    public String performanceMeasurements() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Scheduling Algorithm: " + strategies[0].getName() + "\n");
+        sb.append("Number of Processes: " + getNumProcesses() + "\n");
+        sb.append("Number of CPUs: " + cores.length + "\n");
+        sb.append("Load Balancing: " + balanceName(balance) +
+                (balance == REBALANCE ? " every " + period : "") + "\n");
+        sb.append(String.format("CPU Utilization: %.2f\n", utilization() * 100));
+        sb.append(String.format("Throughput: %.4f\n", throughput()));
+        sb.append(String.format("Average Wait Time: %.2f\n", averageWait()));
+        sb.append(String.format("Average Turnaround Time: %.2f\n", averageTurnaround()));
+        sb.append(String.format("Average Response Time: %.2f\n", averageResponse()));
+        sb.append("Number of Context Switches: " + getContextSwitch() + "\n");
+        sb.append("Number of Migrations: " + migrations + "\n");
+        sb.append(getLatencies().toString(percentiles, strategies[0] instanceof SimpleMLFQ));
+        for (int i = 0; i < cores.length; i++) {
+            sb.append(String.format("CPU %d: Utilization %.2f, Context Switches %d\n",
+                    i, cores[i].utilization() * 100, contextSwitches(cores[i])));
+        }
+        sb.append("===================================\n");
+        return sb.toString();
+    }
+
+}
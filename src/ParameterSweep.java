@@ -0,0 +1,379 @@
+import java.io.*;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tunes RoundRobin, DQRR and SimpleMLFQ by simulating one workload under every
+ * combination of the given parameter values. The simulations are spread across
+ * all cores with fork/join, each on its own copy of the parsed process table.
+ * Prints one row per configuration and marks the Pareto-optimal ones: those no
+ * other configuration beats on every measurement.
+ */
+public class ParameterSweep {
+
+    static final String[] COLUMNS = {"Utilization", "Throughput",
+            "AvgWait", "P99Wait", "AvgTurnaround", "P99Turnaround", "AvgResponse", "P99Response"};
+    // Whether a larger value is better, for each column
+    static final boolean[] MAXIMIZE = {true, true, false, false, false, false, false, false};
+
+    /**
+     * One point of the sweep: a name for it, and how to make its strategy
+     */
+    static abstract class Config {
+        String name;
+
+        Config(String name) {
+            this.name = name;
+        }
+
+        abstract AbstractStrategy createStrategy(int numProcesses);
+    }
+
+    /**
+     * Runs configs[from, to), splitting in half until at most one simulation is left
+     */
+    static class SweepTask extends RecursiveAction {
+        private Process[] table;
+        private boolean eventDriven;
+        private Config[] configs;
+        private double[][] results;
+        private int from, to;
+
+        SweepTask(Process[] table, boolean eventDriven, Config[] configs, double[][] results, int from, int to) {
+            this.table = table;
+            this.eventDriven = eventDriven;
+            this.configs = configs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    results[from] = simulate(table, configs[from].createStrategy(table.length), eventDriven);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(table, eventDriven, configs, results, from, mid),
+                    new SweepTask(table, eventDriven, configs, results, mid, to));
+        }
+    }
+
+    /**
+     * Usage: java ParameterSweep "path_to_process_table.txt" RR|DQRR|MLFQ [name=values ...] [-e] [-csv]
+     * Values are a list (5,10,20) or a range (start:end or start:end:step, e.g. smoothing=0.1:1:0.1).
+     * RR takes quantum. DQRR takes smoothing (0.5,1), minQuantum and maxQuantum. MLFQ takes levels, quantum, demote, maxWait and resetOnBlock (true,false).
+     * MLFQ quantum and demote values may also be per level, separated by slashes:
+     * quantum lowest/.../highest, demote for every level above the lowest (default 20/.../20/15).
+     * -e: use the event-driven engine
+     * -csv: print comma-separated values instead of a table
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        boolean eventDriven = false;
+        boolean csv = false;
+        ArrayList<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("-e")) {
+                eventDriven = true;
+            }
+            else if (arg.equals("-csv")) {
+                csv = true;
+            }
+            else positional.add(arg);
+        }
+        Process[] table = Scheduler.readTable(positional.get(0));
+        HashMap<String, List<String>> grid = new HashMap<>();
+        for (int i = 2; i < positional.size(); i++) {
+            String[] parameter = positional.get(i).split("=", 2);
+            grid.put(parameter[0], parseValues(parameter[1]));
+        }
+        Config[] configs;
+        switch (positional.get(1)) {
+            case "RR":
+                configs = roundRobinConfigs(grid);
+                break;
+            case "DQRR":
+                configs = DQRRConfigs(grid);
+                break;
+            case "MLFQ":
+                configs = MLFQConfigs(grid);
+                break;
+            default:
+                throw new IllegalArgumentException("Can only sweep RR, DQRR or MLFQ: " + positional.get(1));
+        }
+
+        double[][] results = new double[configs.length][];
+        ForkJoinPool.commonPool().invoke(new SweepTask(table, eventDriven, configs, results, 0, configs.length));
+        boolean[] pareto = paretoOptimal(results);
+        if (csv) {
+            displayCSV(configs, results, pareto);
+        }
+        else displayTable(configs, results, pareto);
+    }
+
+    /**
+     * Simulates a fresh copy of the table under strategy
+     * @return the measurement for each of COLUMNS
+     */
+    public static double[] simulate(Process[] table, AbstractStrategy strategy, boolean eventDriven) {
+        Scheduler scheduler = new Scheduler(strategy, Scheduler.copyTable(table));
+        scheduler.setEventDriven(eventDriven);
+        scheduler.setRecordHistory(false);
+        scheduler.setEventSink(EventSink.NONE);
+        scheduler.run();
+        // The same percentiles as Scheduler -percentiles displays
+        LatencyReport latencies = scheduler.getLatencies();
+        return new double[] {scheduler.utilization() * 100, scheduler.throughput(),
+                scheduler.averageWait(), latencies.getHistogram(LatencyReport.WAIT).valueAtPercentile(99),
+                scheduler.averageTurnaround(), latencies.getHistogram(LatencyReport.TURNAROUND).valueAtPercentile(99),
+                scheduler.averageResponse(), latencies.getHistogram(LatencyReport.RESPONSE).valueAtPercentile(99)};
+    }
+
+    /**
+     * A configuration is Pareto-optimal if no other one is at least as good on every
+     * measurement and better on one
+     */
+    public static boolean[] paretoOptimal(double[][] results) {
+        boolean[] result = new boolean[results.length];
+        for (int i = 0; i < results.length; i++) {
+            result[i] = true;
+            for (int j = 0; j < results.length && result[i]; j++) {
+                if (j != i && dominates(results[j], results[i])) {
+                    result[i] = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean dominates(double[] a, double[] b) {
+        boolean better = false;
+        for (int k = 0; k < a.length; k++) {
+            double diff = MAXIMIZE[k] ? a[k] - b[k] : b[k] - a[k];
+            if (diff < 0) {
+                return false;
+            }
+            if (diff > 0) {
+                better = true;
+            }
+        }
+        return better;
+    }
+
+    /*********************
+     * BUILDING THE GRID *
+     *********************/
+
+    /**
+     * "5,10,20" or "1:20" or "1:20:2" (the step must be positive). Ranges may be
+     * decimal ("0.1:1:0.1"), and are counted exactly. Per-level values ("5/10/20")
+     * are kept as they are. Each parameter parses its own values.
+     */
+    static List<String> parseValues(String spec) {
+        ArrayList<String> result = new ArrayList<>();
+        if (spec.contains(":")) {
+            String[] range = spec.split(":");
+            if (range.length != 2 && range.length != 3) {
+                throw new IllegalArgumentException("A range is start:end or start:end:step: " + spec);
+            }
+            BigDecimal start, end, step;
+            try {
+                start = new BigDecimal(range[0]);
+                end = new BigDecimal(range[1]);
+                step = range.length == 3 ? new BigDecimal(range[2]) : BigDecimal.ONE;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("A range needs numbers: " + spec);
+            }
+            if (step.signum() <= 0) {
+                throw new IllegalArgumentException("The step of a range must be positive: " + spec);
+            }
+            for (BigDecimal value = start; value.compareTo(end) <= 0; value = value.add(step)) {
+                result.add(value.toPlainString());
+            }
+        }
+        else result.addAll(Arrays.asList(spec.split(",")));
+        return result;
+    }
+
+    /**
+     * @param parameter: its name, for errors
+     */
+    static int intValue(String parameter, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(parameter + " must be a whole number: " + value);
+        }
+    }
+
+    /**
+     * @param parameter: its name, for errors
+     */
+    static double doubleValue(String parameter, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(parameter + " must be a number: " + value);
+        }
+    }
+
+    static Config[] roundRobinConfigs(HashMap<String, List<String>> grid) {
+        ArrayList<Config> result = new ArrayList<>();
+        for (String value : grid.getOrDefault("quantum", Collections.singletonList("5"))) {
+            int quantum = intValue("quantum", value);
+            result.add(new Config("RR quantum=" + quantum) {
+                @Override
+                AbstractStrategy createStrategy(int numProcesses) {
+                    return new RoundRobin(quantum);
+                }
+            });
+        }
+        return result.toArray(new Config[0]);
+    }
+
+    static Config[] DQRRConfigs(HashMap<String, List<String>> grid) {
+        ArrayList<Config> result = new ArrayList<>();
+        for (String smoothingValue : grid.getOrDefault("smoothing", Collections.singletonList("1"))) {
+            for (String minValue : grid.getOrDefault("minQuantum", Collections.singletonList("0"))) {
+                for (String maxValue : grid.getOrDefault("maxQuantum",
+                        Collections.singletonList(Integer.toString(Integer.MAX_VALUE)))) {
+                    double smoothing = doubleValue("smoothing", smoothingValue);
+                    int minQuantum = intValue("minQuantum", minValue);
+                    int maxQuantum = intValue("maxQuantum", maxValue);
+                    String name = "DQRR smoothing=" + smoothing + " minQuantum=" + minQuantum +
+                            " maxQuantum=" + maxQuantum;
+                    result.add(new Config(name) {
+                        @Override
+                        AbstractStrategy createStrategy(int numProcesses) {
+                            return new DQRR(smoothing, minQuantum, maxQuantum);
+                        }
+                    });
+                }
+            }
+        }
+        return result.toArray(new Config[0]);
+    }
+
+    static Config[] MLFQConfigs(HashMap<String, List<String>> grid) {
+        ArrayList<Config> result = new ArrayList<>();
+        for (String levelsValue : grid.getOrDefault("levels", Collections.singletonList("3"))) {
+            int levels = intValue("levels", levelsValue);
+            if (levels < 1) {
+                throw new IllegalArgumentException("MLFQ needs at least one level: " + levelsValue);
+            }
+            for (String quantumValue : grid.getOrDefault("quantum", Collections.singletonList("5"))) {
+                for (String demoteValue : grid.getOrDefault("demote",
+                        Collections.singletonList(defaultDemote(levels)))) {
+                    for (String maxWaitValue : grid.getOrDefault("maxWait", Collections.singletonList("100"))) {
+                        for (String resetValue : grid.getOrDefault("resetOnBlock", Collections.singletonList("false"))) {
+                            int[] quantums = perLevel("quantum", quantumValue, levels);
+                            int[] demoteQuantums = new int[levels];
+                            int[] demotes = perLevel("demote", demoteValue, levels - 1);
+                            demoteQuantums[0] = -1; // the lowest level cannot be demoted from
+                            for (int i = 1; i < levels; i++) {
+                                demoteQuantums[i] = demotes[i - 1];
+                            }
+                            int maxWait = intValue("maxWait", maxWaitValue);
+                            boolean resetOnBlock = Boolean.parseBoolean(resetValue);
+                            String name = "MLFQ levels=" + levels + " quantum=" + quantumValue +
+                                    " demote=" + demoteValue + " maxWait=" + maxWait + " resetOnBlock=" + resetOnBlock;
+                            result.add(new Config(name) {
+                                @Override
+                                AbstractStrategy createStrategy(int numProcesses) {
+                                    return new SimpleMLFQ(levels, quantums, demoteQuantums, maxWait, resetOnBlock);
+                                }
+                            });
+                        }
+                    }
+                }
+            }
+        }
+        return result.toArray(new Config[0]);
+    }
+
+    /**
+     * The demote quantums of the default SimpleMLFQ for any number of levels: 20,
+     * and 15 for the highest level, e.g. "20/15" for three levels
+     */
+    static String defaultDemote(int levels) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < levels; i++) {
+            sb.append(i == 1 ? "" : "/").append(i == levels - 1 ? 15 : 20);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * "5" for every level, or one value per level separated by slashes
+     * @param parameter: its name, for errors
+     */
+    static int[] perLevel(String parameter, String value, int levels) {
+        int[] result = new int[levels];
+        if (levels == 0) {
+            return result;
+        }
+        String[] values = value.split("/");
+        if (values.length != 1 && values.length != levels) {
+            throw new IllegalArgumentException(parameter + " needs one value or " + levels +
+                    " separated by slashes: " + value);
+        }
+        for (int i = 0; i < levels; i++) {
+            result[i] = intValue(parameter, values.length == 1 ? values[0] : values[i]);
+        }
+        return result;
+    }
+
+    /**************
+     * DISPLAYING *
+     **************/
+
+    static void displayTable(Config[] configs, double[][] results, boolean[] pareto) {
+        int nameWidth = "Configuration".length();
+        for (Config config : configs) {
+            nameWidth = Math.max(nameWidth, config.name.length());
+        }
+        StringBuilder header = new StringBuilder(String.format("%-" + nameWidth + "s", "Configuration"));
+        for (String column : COLUMNS) {
+            header.append(String.format(" %13s", column));
+        }
+        header.append("  Pareto");
+        System.out.println(header.toString());
+        for (int i = 0; i < configs.length; i++) {
+            StringBuilder sb = new StringBuilder(String.format("%-" + nameWidth + "s", configs[i].name));
+            for (double value : results[i]) {
+                sb.append(String.format(" %13.4f", value));
+            }
+            sb.append(pareto[i] ? "  *" : "");
+            System.out.println(sb.toString());
+        }
+        System.out.println("Pareto-optimal:");
+        for (int i = 0; i < configs.length; i++) {
+            if (pareto[i]) {
+                System.out.println("  " + configs[i].name);
+            }
+        }
+    }
+
+    static void displayCSV(Config[] configs, double[][] results, boolean[] pareto) {
+        StringBuilder header = new StringBuilder("Configuration");
+        for (String column : COLUMNS) {
+            header.append(",").append(column);
+        }
+        header.append(",Pareto");
+        System.out.println(header.toString());
+        for (int i = 0; i < configs.length; i++) {
+            StringBuilder sb = new StringBuilder("\"" + configs[i].name + "\"");
+            for (double value : results[i]) {
+                sb.append(",").append(value);
+            }
+            sb.append(",").append(pareto[i]);
+            System.out.println(sb.toString());
+        }
+    }
+
+}
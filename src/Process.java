@@ -1,43 +1,43 @@
-public class Process {
+import java.util.Arrays;
 
-    private int PID; // Process ID
-    private int arrivalTime;
-    private int priority;
-    private int[] bursts; // CPU/IO burst times
+/**
+ * One process: a handle onto its slot in a ProcessTable, where its fields are kept
+ * in primitive arrays shared with the rest of the table.
+ */
+public class Process {
 
-    private int tracker; // to keep track of which burst we are on
-    private int currentRuntime; // to decide when this process' priority
-                                // needs to be reconsidered
-    private int readyTime; // to keep track of when this process entered ready state
+    private ProcessTable table;
+    private int slot;
 
-    // to track overall stats of a Strategy
-    private int finishTime;
-    private int waitingTime;
-    private int firstTimeOnCPU;
+    Process(ProcessTable table, int slot) {
+        this.table = table;
+        this.slot = slot;
+    }
 
+    /**
+     * A process in a table of its own, for tests and one-off processes. Workloads
+     * are built in one ProcessTable with ProcessTable.add().
+     */
     public Process(int PID, int arrivalTime, int priority, int[] bursts) {
-        this.PID = PID;
-        this.arrivalTime = arrivalTime;
-        this.priority = priority;
-        this.bursts = bursts;
-        this.readyTime = arrivalTime;
+        table = new ProcessTable(1, bursts.length);
+        slot = table.add(this, PID, arrivalTime, priority, bursts);
     }
 
+    /**
+     * A copy in a table of its own, for tests. Use ProcessTable.copy() to copy a
+     * workload.
+     */
     public Process(Process copy) {
-        PID = copy.PID;
-        arrivalTime = copy.arrivalTime;
-        priority = copy.priority;
-        bursts = new int[copy.bursts.length];
-        for (int i = 0; i < bursts.length; i++) {
-            bursts[i] = copy.bursts[i];
-        }
-        readyTime = copy.readyTime;
-        tracker = copy.tracker;
+        table = new ProcessTable(1, copy.getNumBursts());
+        slot = table.addCopy(this, copy);
+    }
 
-        currentRuntime = copy.currentRuntime;
-        finishTime = copy.finishTime;
-        waitingTime = copy.waitingTime;
-        firstTimeOnCPU = copy.firstTimeOnCPU;
+    public ProcessTable getTable() {
+        return table;
+    }
+
+    public int getSlot() {
+        return slot;
     }
 
     /***********
@@ -45,51 +45,85 @@ public class Process {
      ***********/
 
     public void incrementTracker() {
-        tracker++;
+        table.tracker[slot]++;
     }
 
     public void decrementBurst() {
-        if (bursts[tracker]>0) bursts[tracker]--;
+        int i = burstIndex();
+        if (table.bursts[i]>0) table.bursts[i]--;
+    }
+
+    public void decrementBurst(int time) {
+        int i = burstIndex();
+        table.bursts[i] = Math.max(table.bursts[i] - time, 0);
     }
 
     public void incrementPriority() {
-        priority++;
+        table.priority[slot]++;
     }
 
     public void decrementPriority() {
-        priority--;
+        table.priority[slot]--;
     }
 
     public void setPriority(int priority) {
-        this.priority = priority;
+        table.priority[slot] = priority;
     }
 
     public void incrementWaitingTime() {
-        waitingTime++;
+        table.waitingTime[slot]++;
+    }
+
+    public void incrementWaitingTime(int time) {
+        table.waitingTime[slot] += time;
     }
 
     public void decrementWaitingTime() {
-        waitingTime--;
+        table.waitingTime[slot]--;
     }
 
     public void setFirstTimeOnCPU(int time) {
-        firstTimeOnCPU = time;
+        table.firstTimeOnCPU[slot] = time;
+    }
+
+    public void incrementContextSwitches() {
+        table.contextSwitches[slot]++;
     }
 
     public void setFinishTime(int time) {
-        finishTime = time;
+        table.finishTime[slot] = time;
+    }
+
+    public void setCompleted() {
+        table.completed[slot] = true;
     }
 
     public void incrementCurrentRuntime() {
-        currentRuntime++;
+        table.currentRuntime[slot]++;
+    }
+
+    public void incrementCurrentRuntime(int time) {
+        table.currentRuntime[slot] += time;
     }
 
     public void resetCurrentRuntime() {
-        currentRuntime = 0;
+        table.currentRuntime[slot] = 0;
+    }
+
+    public void incrementLevelRuntime(int time) {
+        table.levelRuntime[slot] += time;
+    }
+
+    public void resetLevelRuntime() {
+        table.levelRuntime[slot] = 0;
     }
 
     public void setReadyTime(int time) {
-        readyTime = time;
+        table.readyTime[slot] = time;
+    }
+
+    public void setBlockedTime(int time) {
+        table.blockedTime[slot] = time;
     }
 
 
@@ -97,35 +131,58 @@ public class Process {
      *Getters*
      *********/
     public int getPID() {
-        return PID;
+        return table.PID[slot];
     }
 
     public int getArrivalTime() {
-        return arrivalTime;
+        return table.arrivalTime[slot];
     }
 
     public int getPriority() {
-        return priority;
+        return table.priority[slot];
     }
 
+    /**
+     * A copy of the CPU/IO burst times
+     */
     public int[] getBursts() {
-        return bursts;
+        int start = table.burstStart[slot];
+        return Arrays.copyOfRange(table.bursts, start, start + table.numBursts[slot]);
+    }
+
+    public int getNumBursts() {
+        return table.numBursts[slot];
+    }
+
+    public int getBurst(int i) {
+        return table.bursts[table.burstStart[slot] + i];
     }
 
     public int getTracker() {
-        return tracker;
+        return table.tracker[slot];
     }
 
     public int getCurrentRuntime() {
-        return currentRuntime;
+        return table.currentRuntime[slot];
+    }
+
+    /**
+     * How long it has run at its MLFQ level, toward being demoted
+     */
+    public int getLevelRuntime() {
+        return table.levelRuntime[slot];
     }
 
     public int getCurrentBurst() {
-        return bursts[tracker];
+        return table.currentBurst(slot);
+    }
+
+    private int burstIndex() {
+        return table.burstStart[slot] + table.tracker[slot];
     }
 
     public boolean onFinalBurst() {
-        return tracker == bursts.length - 1;
+        return table.tracker[slot] == getNumBursts() - 1;
     }
 
     public boolean finishedCurrentBurst() {
@@ -137,7 +194,27 @@ public class Process {
     }
 
     public int getReadyTime() {
-        return readyTime;
+        return table.readyTime[slot];
+    }
+
+    public int getBlockedTime() {
+        return table.blockedTime[slot];
+    }
+
+    /**
+     * Blocked processes are not counted down every time unit. Instead, the IO burst
+     * completes this many time units after the process blocked (an empty burst still
+     * takes one time unit).
+     */
+    public int getIOCompletionTime() {
+        return table.ioCompletionTime(slot);
+    }
+
+    /**
+     * How much of the current IO burst is left at the end of the given time unit
+     */
+    public int getRemainingIO(int time) {
+        return Math.min(getCurrentBurst(), getIOCompletionTime() - time);
     }
 
     /****************
@@ -145,23 +222,41 @@ public class Process {
      ****************/
 
     public int getFinishTime() {
-        return finishTime;
+        return table.finishTime[slot];
+    }
+
+    public boolean isCompleted() {
+        return table.completed[slot];
     }
 
     public int getWaitingTime() {
-        return waitingTime;
+        return table.waitingTime[slot];
     }
 
     public int getFirstTimeOnCPU() {
-        return firstTimeOnCPU;
+        return table.firstTimeOnCPU[slot];
+    }
+
+    /**
+     * The priority it was given, which MLFQ replaces by its level
+     */
+    public int getInitialPriority() {
+        return table.initialPriority[slot];
+    }
+
+    /**
+     * How many times it was put on the CPU
+     */
+    public int getContextSwitches() {
+        return table.contextSwitches[slot];
     }
 
     public int getResponseTime() {
-        return firstTimeOnCPU - arrivalTime;
+        return getFirstTimeOnCPU() - getArrivalTime();
     }
 
     public int getTurnaroundTime() {
-        return finishTime - arrivalTime;
+        return getFinishTime() - getArrivalTime();
     }
 
 
@@ -171,8 +266,8 @@ public class Process {
     public String burstToString() {
         StringBuilder sb = new StringBuilder();
         sb.append("[ ");
-        for (int i = 0; i < bursts.length; i++) {
-            sb.append(bursts[i]);
+        for (int i = 0; i < getNumBursts(); i++) {
+            sb.append(getBurst(i));
             sb.append(" ");
         }
         sb.append("]");
@@ -182,16 +277,16 @@ public class Process {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("[Process");
-        sb.append(PID);
+        sb.append(getPID());
         sb.append(" ");
-        sb.append(arrivalTime);
+        sb.append(getArrivalTime());
         sb.append(" ( ");
-        for (int i = 0; i < bursts.length; i++) {
-            sb.append(bursts[i]);
+        for (int i = 0; i < getNumBursts(); i++) {
+            sb.append(getBurst(i));
             sb.append(" ");
         }
         sb.append(") ");
-        sb.append(tracker);
+        sb.append(getTracker());
         sb.append("]");
         return sb.toString();
     }
@@ -0,0 +1,75 @@
+import java.io.*;
+
+/**
+ * Reads a process table file (see Scheduler.main() for the format) one process at
+ * a time, as the scheduler reaches each arrival, instead of all at once. The file
+ * must be sorted by arrival time. The processes are read into one ProcessTable, as
+ * the ready queues need; the scheduler gives each back with release() once it has
+ * completed, and its slot is reused for a later process, so the table only grows
+ * to as many processes as are in the system at once.
+ */
+public class ProcessStream implements Closeable {
+
+    private TableReader reader;
+    private String path;
+    private Process next; // read ahead, null once every process has been read
+    private ProcessTable table; // of every process read
+
+    public ProcessStream(String path) throws IOException {
+        this.path = path;
+        reader = new TableReader(path);
+        table = new ProcessTable(16, 80);
+        next = read();
+    }
+
+    /**
+     * How many processes the file holds, from its first line
+     */
+    public int getNumProcesses() {
+        return reader.getNumProcesses();
+    }
+
+    /**
+     * The next process to arrive, without taking it. null if there are no more.
+     */
+    public Process peek() {
+        return next;
+    }
+
+    /**
+     * Takes the next process to arrive and reads the one after it
+     */
+    public Process next() {
+        Process result = next;
+        try {
+            next = read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (next != null && next.getArrivalTime() < result.getArrivalTime()) {
+            throw new IllegalStateException(path + " is not sorted by arrival time at process " + next.getPID());
+        }
+        return result;
+    }
+
+    /**
+     * Into a released slot if there is one
+     */
+    private Process read() throws IOException {
+        return reader.next(table);
+    }
+
+    /**
+     * Takes back a process that has completed, whose slot (and handle) is reused
+     * for a later process read. Nothing may use the process afterwards.
+     */
+    public void release(Process process) {
+        table.release(process.getSlot());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
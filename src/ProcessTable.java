@@ -0,0 +1,319 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Storage for many processes at once, as parallel primitive arrays indexed by slot
+ * rather than one object (plus a burst array) per process. Each Process is a small
+ * handle onto its slot, made once per slot; ReadyQueue and the comparators work on
+ * the slots and read these arrays directly. Copying a whole table (snapshots,
+ * simulating one workload more than once) is an array copy per field. The slot of
+ * a completed process can be released and reused, as ProcessStream does.
+ */
+public class ProcessTable {
+
+    private int size; // slots handed out, released or not
+
+    // Per slot
+    int[] PID;
+    int[] arrivalTime;
+    int[] priority;
+    int[] initialPriority; // as given, before a strategy changed it
+    int[] tracker;
+    int[] currentRuntime;
+    int[] readyTime;
+    int[] blockedTime;
+    int[] finishTime;
+    int[] waitingTime;
+    int[] firstTimeOnCPU;
+    int[] contextSwitches; // how many times it was put on the CPU
+    int[] levelRuntime; // MLFQ: CPU time used at its level, toward being demoted
+    boolean[] completed;
+    int[] queueIndex; // where the process sits in its ReadyQueue, if it is in one
+
+    // All the bursts, packed one process after another. Slot i's bursts are
+    // bursts[burstStart[i]] to bursts[burstStart[i] + numBursts[i] - 1].
+    int[] burstStart;
+    int[] numBursts;
+    int[] burstRoom; // how many bursts fit from burstStart, for when the slot is reused
+    int[] bursts;
+    private int burstsUsed;
+
+    private Process[] processes; // the handle of each slot
+
+    // Released slots, to reuse before making new ones
+    private int[] free;
+    private int numFree;
+
+    public ProcessTable(int capacity, int burstCapacity) {
+        capacity = Math.max(capacity, 1);
+        PID = new int[capacity];
+        arrivalTime = new int[capacity];
+        priority = new int[capacity];
+        initialPriority = new int[capacity];
+        tracker = new int[capacity];
+        currentRuntime = new int[capacity];
+        readyTime = new int[capacity];
+        blockedTime = new int[capacity];
+        finishTime = new int[capacity];
+        waitingTime = new int[capacity];
+        firstTimeOnCPU = new int[capacity];
+        contextSwitches = new int[capacity];
+        levelRuntime = new int[capacity];
+        completed = new boolean[capacity];
+        queueIndex = new int[capacity];
+        burstStart = new int[capacity];
+        numBursts = new int[capacity];
+        burstRoom = new int[capacity];
+        bursts = new int[Math.max(burstCapacity, 1)];
+        processes = new Process[capacity];
+        free = new int[0];
+    }
+
+    private ProcessTable(ProcessTable copy) {
+        size = copy.size;
+        PID = copy.PID.clone();
+        arrivalTime = copy.arrivalTime.clone();
+        priority = copy.priority.clone();
+        initialPriority = copy.initialPriority.clone();
+        tracker = copy.tracker.clone();
+        currentRuntime = copy.currentRuntime.clone();
+        readyTime = copy.readyTime.clone();
+        blockedTime = copy.blockedTime.clone();
+        finishTime = copy.finishTime.clone();
+        waitingTime = copy.waitingTime.clone();
+        firstTimeOnCPU = copy.firstTimeOnCPU.clone();
+        contextSwitches = copy.contextSwitches.clone();
+        levelRuntime = copy.levelRuntime.clone();
+        completed = copy.completed.clone();
+        queueIndex = copy.queueIndex.clone();
+        burstStart = copy.burstStart.clone();
+        numBursts = copy.numBursts.clone();
+        burstRoom = copy.burstRoom.clone();
+        bursts = copy.bursts.clone();
+        burstsUsed = copy.burstsUsed;
+        processes = new Process[copy.processes.length];
+        for (int i = 0; i < size; i++) {
+            processes[i] = new Process(this, i);
+        }
+        free = copy.free.clone();
+        numFree = copy.numFree;
+    }
+
+    /**
+     * A copy of the whole table, an array copy per field
+     */
+    public ProcessTable copy() {
+        return new ProcessTable(this);
+    }
+
+    /**
+     * A new table holding copies of the given processes, in the same order
+     */
+    public static ProcessTable copyOf(Process[] processes) {
+        if (isWhole(processes)) {
+            return processes[0].getTable().copy();
+        }
+        int burstCount = 0;
+        for (Process process : processes) {
+            burstCount += process.getNumBursts();
+        }
+        ProcessTable result = new ProcessTable(processes.length, burstCount);
+        for (Process process : processes) {
+            result.addCopy(null, process);
+        }
+        return result;
+    }
+
+    /**
+     * Are these all the processes of one table, in slot order?
+     */
+    static boolean isWhole(Process[] processes) {
+        if (processes.length == 0) {
+            return false;
+        }
+        ProcessTable table = processes[0].getTable();
+        if (table.size != processes.length || table.numFree > 0) {
+            return false;
+        }
+        for (int i = 0; i < processes.length; i++) {
+            if (processes[i].getTable() != table || processes[i].getSlot() != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Process add(int PID, int arrivalTime, int priority, int[] bursts) {
+        int slot = add(null, PID, arrivalTime, priority, bursts); // may grow processes
+        return processes[slot];
+    }
+
+    /**
+     * Adds a process whose bursts are bursts[from] to bursts[to - 1]
+     */
+    public Process add(int PID, int arrivalTime, int priority, int[] bursts, int from, int to) {
+        int slot = newSlot(null, to - from);
+        set(slot, PID, arrivalTime, priority);
+        System.arraycopy(bursts, from, this.bursts, burstStart[slot], to - from);
+        return processes[slot];
+    }
+
+    /**
+     * @param handle: the Process to use as the new slot's handle, or null for a new one
+     * @return the new slot
+     */
+    int add(Process handle, int PID, int arrivalTime, int priority, int[] bursts) {
+        int slot = newSlot(handle, bursts.length);
+        set(slot, PID, arrivalTime, priority);
+        System.arraycopy(bursts, 0, this.bursts, burstStart[slot], bursts.length);
+        return slot;
+    }
+
+    /**
+     * Adds a process whose bursts are the next numBursts ints of bursts
+     */
+    public Process add(int PID, int arrivalTime, int priority, IntBuffer bursts, int numBursts) {
+        int slot = newSlot(null, numBursts);
+        set(slot, PID, arrivalTime, priority);
+        bursts.get(this.bursts, burstStart[slot], numBursts);
+        return processes[slot];
+    }
+
+    private void set(int slot, int PID, int arrivalTime, int priority) {
+        this.PID[slot] = PID;
+        this.arrivalTime[slot] = arrivalTime;
+        this.priority[slot] = priority;
+        this.initialPriority[slot] = priority;
+        this.readyTime[slot] = arrivalTime;
+    }
+
+    /**
+     * @param handle: the Process to use as the new slot's handle, or null for a new one
+     * @return the new slot, holding a copy of process
+     */
+    int addCopy(Process handle, Process process) {
+        ProcessTable from = process.getTable();
+        int i = process.getSlot();
+        int numBursts = from.numBursts[i];
+        int slot = newSlot(handle, numBursts);
+        PID[slot] = from.PID[i];
+        arrivalTime[slot] = from.arrivalTime[i];
+        priority[slot] = from.priority[i];
+        initialPriority[slot] = from.initialPriority[i];
+        tracker[slot] = from.tracker[i];
+        currentRuntime[slot] = from.currentRuntime[i];
+        readyTime[slot] = from.readyTime[i];
+        blockedTime[slot] = from.blockedTime[i];
+        finishTime[slot] = from.finishTime[i];
+        waitingTime[slot] = from.waitingTime[i];
+        firstTimeOnCPU[slot] = from.firstTimeOnCPU[i];
+        contextSwitches[slot] = from.contextSwitches[i];
+        levelRuntime[slot] = from.levelRuntime[i];
+        completed[slot] = from.completed[i];
+        System.arraycopy(from.bursts, from.burstStart[i], bursts, burstStart[slot], numBursts);
+        return slot;
+    }
+
+    /**
+     * A released slot if there is one, keeping its handle, else a new one
+     */
+    private int newSlot(Process handle, int numBursts) {
+        int slot;
+        if (numFree > 0) {
+            slot = free[--numFree];
+        }
+        else {
+            if (size == PID.length) {
+                grow(size * 2);
+            }
+            slot = size++;
+        }
+        if (numBursts > burstRoom[slot]) {
+            // The slot's old bursts are left behind
+            int end = burstsUsed + numBursts;
+            if (end > bursts.length) {
+                bursts = Arrays.copyOf(bursts, Math.max(end, bursts.length * 2));
+            }
+            burstStart[slot] = burstsUsed;
+            burstRoom[slot] = numBursts;
+            burstsUsed = end;
+        }
+        this.numBursts[slot] = numBursts;
+        if (handle != null) {
+            processes[slot] = handle;
+        }
+        else if (processes[slot] == null) {
+            processes[slot] = new Process(this, slot);
+        }
+        return slot;
+    }
+
+    private void grow(int capacity) {
+        PID = Arrays.copyOf(PID, capacity);
+        arrivalTime = Arrays.copyOf(arrivalTime, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        initialPriority = Arrays.copyOf(initialPriority, capacity);
+        tracker = Arrays.copyOf(tracker, capacity);
+        currentRuntime = Arrays.copyOf(currentRuntime, capacity);
+        readyTime = Arrays.copyOf(readyTime, capacity);
+        blockedTime = Arrays.copyOf(blockedTime, capacity);
+        finishTime = Arrays.copyOf(finishTime, capacity);
+        waitingTime = Arrays.copyOf(waitingTime, capacity);
+        firstTimeOnCPU = Arrays.copyOf(firstTimeOnCPU, capacity);
+        contextSwitches = Arrays.copyOf(contextSwitches, capacity);
+        levelRuntime = Arrays.copyOf(levelRuntime, capacity);
+        completed = Arrays.copyOf(completed, capacity);
+        queueIndex = Arrays.copyOf(queueIndex, capacity);
+        burstStart = Arrays.copyOf(burstStart, capacity);
+        numBursts = Arrays.copyOf(numBursts, capacity);
+        burstRoom = Arrays.copyOf(burstRoom, capacity);
+        processes = Arrays.copyOf(processes, capacity);
+    }
+
+    /**
+     * Frees a slot for the next process added, e.g. the next one streamed, which
+     * also gets its handle. The process it held must not be used any more.
+     */
+    void release(int slot) {
+        for (int[] column : new int[][] {PID, arrivalTime, priority, initialPriority, tracker,
+                currentRuntime, readyTime, blockedTime, finishTime, waitingTime, firstTimeOnCPU,
+                contextSwitches, levelRuntime, queueIndex, numBursts}) {
+            column[slot] = 0;
+        }
+        completed[slot] = false;
+        if (numFree == free.length) {
+            free = Arrays.copyOf(free, Math.max(numFree * 2, 16));
+        }
+        free[numFree++] = slot;
+    }
+
+    /**
+     * The current burst of a slot, as Process.getCurrentBurst()
+     */
+    int currentBurst(int slot) {
+        return bursts[burstStart[slot] + tracker[slot]];
+    }
+
+    /**
+     * When the IO burst of a blocked slot completes, as Process.getIOCompletionTime()
+     */
+    int ioCompletionTime(int slot) {
+        return blockedTime[slot] + Math.max(currentBurst(slot), 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Process getProcess(int slot) {
+        return processes[slot];
+    }
+
+    /**
+     * The handles of every slot, in slot order
+     */
+    public Process[] getProcesses() {
+        return Arrays.copyOf(processes, size);
+    }
+
+}
@@ -0,0 +1,312 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The ready queue of a strategy, also used for its blocked processes: a 4-ary heap
+ * of int slots in one ProcessTable, compared by reading the table's arrays, so
+ * neither the heap nor the comparator goes through the Process handles. It knows
+ * where each process sits (kept in the process's slot), so a process can be removed
+ * or moved after its key changed in O(log n) instead of searched for. Processes the
+ * comparator finds equal are ordered by ready time, then PID, so the order is
+ * always the same. Otherwise it is used like a PriorityQueue.
+ * A process can only be in one ReadyQueue at a time, and the processes in a queue
+ * must all be in the same ProcessTable.
+ */
+public class ReadyQueue extends AbstractQueue<Process> {
+
+    static final int ARITY = 4;
+
+    private SlotComparator comparator;
+    private ProcessTable table; // of the processes queued, set by the first one
+    private int[] heap;
+    private int size;
+
+    public ReadyQueue(SlotComparator comparator) {
+        this.comparator = comparator instanceof StableComparator ? comparator : new StableComparator(comparator);
+        heap = new int[16];
+    }
+
+    /**
+     * The order of the queue, ties included
+     */
+    public SlotComparator comparator() {
+        return comparator;
+    }
+
+    /**
+     * An order of processes that reads their fields from the ProcessTable arrays,
+     * by slot. It still compares Process handles, for other collections.
+     */
+    public abstract static class SlotComparator implements Comparator<Process> {
+
+        /**
+         * Compares slot a of table ta with slot b of table tb
+         */
+        public abstract int compare(ProcessTable ta, int a, ProcessTable tb, int b);
+
+        @Override
+        public int compare(Process o1, Process o2) {
+            return compare(o1.getTable(), o1.getSlot(), o2.getTable(), o2.getSlot());
+        }
+    }
+
+    /**
+     * Breaks the ties of another comparator by ready time, then PID
+     */
+    static class StableComparator extends SlotComparator {
+
+        private SlotComparator comparator;
+
+        StableComparator(SlotComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(ProcessTable ta, int a, ProcessTable tb, int b) {
+            int result = comparator.compare(ta, a, tb, b);
+            if (result != 0) {
+                return result;
+            }
+            if (ta.readyTime[a] != tb.readyTime[b]) {
+                return Integer.compare(ta.readyTime[a], tb.readyTime[b]);
+            }
+            return Integer.compare(ta.PID[a], tb.PID[b]);
+        }
+    }
+
+    @Override
+    public boolean add(Process process) {
+        return offer(process);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the queue holds processes of another table
+     */
+    @Override
+    public boolean offer(Process process) {
+        if (process == null) {
+            throw new NullPointerException();
+        }
+        if (size == 0) {
+            table = process.getTable();
+        }
+        else if (process.getTable() != table) {
+            throw new IllegalArgumentException("Process" + process.getPID() + " is not in the table of the others");
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        siftUp(size++, process.getSlot());
+        return true;
+    }
+
+    @Override
+    public Process peek() {
+        return size == 0 ? null : table.getProcess(heap[0]);
+    }
+
+    @Override
+    public Process poll() {
+        if (size == 0) {
+            return null;
+        }
+        Process result = table.getProcess(heap[0]);
+        removeAt(0);
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int i = indexOf(o);
+        if (i < 0) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Moves process to where it belongs after whatever the comparator looks at
+     * changed. Call it before anything else is added or removed.
+     * @return false if the process is not in this queue
+     */
+    public boolean updateKey(Process process) {
+        int i = indexOf(process);
+        if (i < 0) {
+            return false;
+        }
+        int slot = heap[i];
+        siftUp(i, slot);
+        if (heap[i] == slot) {
+            siftDown(i, slot);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = table.getProcess(heap[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Process> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(table.getProcess(heap[i]));
+        }
+    }
+
+    /**
+     * In heap order, like PriorityQueue's
+     */
+    @Override
+    public Iterator<Process> iterator() {
+        return new Iterator<Process>() {
+            private int cursor;
+            private int lastIndex = -1;
+            private Process last;
+            // Processes moved from after the cursor to before it by remove()
+            private ArrayDeque<Process> moved;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size || (moved != null && !moved.isEmpty());
+            }
+
+            @Override
+            public Process next() {
+                if (cursor < size) {
+                    lastIndex = cursor;
+                    return last = table.getProcess(heap[cursor++]);
+                }
+                if (moved != null && !moved.isEmpty()) {
+                    lastIndex = -1;
+                    return last = moved.poll();
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                if (lastIndex >= 0) {
+                    int replacement = removeAt(lastIndex);
+                    if (replacement < 0) {
+                        cursor--; // what took its place has not been returned yet
+                    }
+                    else {
+                        if (moved == null) {
+                            moved = new ArrayDeque<>();
+                        }
+                        moved.add(table.getProcess(replacement));
+                    }
+                }
+                else ReadyQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Where process sits, -1 if it is not in this queue
+     */
+    private int indexOf(Object o) {
+        if (!(o instanceof Process) || size == 0) {
+            return -1;
+        }
+        Process process = (Process) o;
+        if (process.getTable() != table) {
+            return -1;
+        }
+        int slot = process.getSlot();
+        int i = table.queueIndex[slot];
+        return i < size && heap[i] == slot ? i : -1;
+    }
+
+    /**
+     * Removes the process at i
+     * @return the slot of the last process if it was moved from after i to before
+     * it, else -1
+     */
+    private int removeAt(int i) {
+        int last = --size;
+        int moved = heap[last];
+        if (i == last) {
+            return -1;
+        }
+        siftDown(i, moved);
+        if (heap[i] == moved) {
+            siftUp(i, moved);
+            if (heap[i] != moved) {
+                return moved;
+            }
+        }
+        return -1;
+    }
+
+    private void siftUp(int i, int slot) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            int p = heap[parent];
+            if (comparator.compare(table, slot, table, p) >= 0) {
+                break;
+            }
+            set(i, p);
+            i = parent;
+        }
+        set(i, slot);
+    }
+
+    private void siftDown(int i, int slot) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int least = first;
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                if (comparator.compare(table, heap[child], table, heap[least]) < 0) {
+                    least = child;
+                }
+            }
+            if (comparator.compare(table, heap[least], table, slot) >= 0) {
+                break;
+            }
+            set(i, heap[least]);
+            i = least;
+        }
+        set(i, slot);
+    }
+
+    private void set(int i, int slot) {
+        heap[i] = slot;
+        table.queueIndex[slot] = i;
+    }
+
+}
@@ -0,0 +1,185 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes results as rows of named fields, as CSV (with a header line) or JSON Lines
+ * (an object per line), depending on whether the path ends with .csv or .jsonl.
+ * Rows go through a buffer as they come, so nothing is kept once written.
+ * Scheduler writes a row per process as it completes (see PROCESS_FIELDS), and
+ * appends a summary row per run to a file of its own.
+ */
+public class ResultExporter implements Closeable {
+
+    static final int CSV = 0;
+    static final int JSON_LINES = 1;
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    static final String[] PROCESS_FIELDS = {"pid", "arrival", "priority", "finish", "wait",
+            "response", "turnaround", "context_switches", "mlfq_level"};
+
+    private Writer out;
+    private int format;
+    private boolean header; // whether the CSV header is still to be written
+    private String existingHeader; // of the CSV file appended to, if it had one
+    private Object[] processRow = new Object[PROCESS_FIELDS.length];
+
+    /**
+     * @param append: add to the end of the file instead of replacing it. The CSV
+     *              header is only written if the file is empty.
+     */
+    public ResultExporter(String path, boolean append) throws IOException {
+        format = formatOf(path);
+        File file = new File(path);
+        header = format == CSV && !(append && file.length() > 0);
+        if (format == CSV && !header) {
+            existingHeader = readHeader(file);
+        }
+        out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, append), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static String readHeader(File file) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            return in.readLine();
+        }
+    }
+
+    /**
+     * Fails if rows of these fields could not be appended to the file at path: it
+     * is not .csv or .jsonl, or it is a CSV file with other columns
+     */
+    public static void checkFields(String path, String[] fields) throws IOException {
+        File file = new File(path);
+        if (formatOf(path) == CSV && file.length() > 0) {
+            String header = readHeader(file);
+            if (!String.join(",", fields).equals(header)) {
+                throw new IllegalArgumentException(path + " has other columns: " + header);
+            }
+        }
+    }
+
+    public static int formatOf(String path) {
+        if (path.endsWith(".csv")) {
+            return CSV;
+        }
+        if (path.endsWith(".jsonl")) {
+            return JSON_LINES;
+        }
+        throw new IllegalArgumentException("Results are exported to .csv or .jsonl files: " + path);
+    }
+
+    /**
+     * A row of PROCESS_FIELDS for a completed process
+     * @param level: its MLFQ level when it completed, -1 if not scheduled by MLFQ
+     */
+    public void process(Process process, int level) throws IOException {
+        processRow[0] = process.getPID();
+        processRow[1] = process.getArrivalTime();
+        processRow[2] = process.getInitialPriority();
+        processRow[3] = process.getFinishTime();
+        processRow[4] = process.getWaitingTime();
+        processRow[5] = process.getResponseTime();
+        processRow[6] = process.getTurnaroundTime();
+        processRow[7] = process.getContextSwitches();
+        processRow[8] = level >= 0 ? (Object) level : null;
+        row(PROCESS_FIELDS, processRow);
+    }
+
+    /**
+     * Writes a row. Every row of a CSV file must have the same fields.
+     * @param values: Strings, numbers, or null for none
+     */
+    public void row(String[] fields, Object[] values) throws IOException {
+        if (format == CSV) {
+            if (header) {
+                out.write(String.join(",", fields));
+                out.write('\n');
+                header = false;
+            }
+            else if (existingHeader != null) {
+                if (!existingHeader.equals(String.join(",", fields))) {
+                    throw new IllegalArgumentException("The file has other columns: " + existingHeader);
+                }
+                existingHeader = null;
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                if (values[i] instanceof String) {
+                    writeCSVString((String) values[i]);
+                }
+                else if (values[i] != null) {
+                    out.write(values[i].toString());
+                }
+            }
+        }
+        else {
+            out.write('{');
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeJSONString(fields[i]);
+                out.write(':');
+                Object value = values[i];
+                if (value instanceof String) {
+                    writeJSONString((String) value);
+                }
+                else if (value == null || (value instanceof Double && !Double.isFinite((Double) value))) {
+                    out.write("null");
+                }
+                else out.write(value.toString());
+            }
+            out.write('}');
+        }
+        out.write('\n');
+    }
+
+    private void writeCSVString(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private void writeJSONString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            }
+            else if (c < ' ') {
+                out.write(String.format("\\u%04x", (int) c));
+            }
+            else out.write(c);
+        }
+        out.write('"');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Appends one row to the file at path, e.g. the summary of a run
+     */
+    public static void append(String path, String[] fields, Object[] values) throws IOException {
+        try (ResultExporter exporter = new ResultExporter(path, true)) {
+            exporter.row(fields, values);
+        }
+    }
+
+}
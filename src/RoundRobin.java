@@ -23,4 +23,14 @@ public class RoundRobin extends AbstractStrategy implements Strategy {
         Process CPU = scheduler.getCPU();
         return (CPU.getCurrentRuntime() >= quantum && !getReadyQueue().isEmpty());
     }
+
+    @Override
+    public int nextEventTime(Scheduler scheduler) {
+        Process CPU = scheduler.getCPU();
+        if (CPU == null || getReadyQueue().isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        // When the running process uses up its quantum
+        return scheduler.getTimer() - 1 + Math.max(quantum - CPU.getCurrentRuntime(), 1);
+    }
 }
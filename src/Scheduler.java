@@ -1,60 +1,122 @@
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
 import java.util.*;
 import java.io.*;
 
 public class Scheduler {
 
-    // A snapshot of everything at each time unit
-    private static ArrayList<Scheduler> timeline = new ArrayList<>();
+    // The algorithms main() and BatchRunner know by name
+    static final String[] ALGORITHMS = {"FCFS", "P", "SJF", "SJRF", "RR", "DQRR", "MLFQ"};
 
-    private static ArrayList<SchedulerState> history = new ArrayList<>();
+    // Events and keyframes from which the state at each time unit can be rebuilt
+    private SchedulerHistory history;
+    // Where events are reported as they happen
+    private EventSink eventSink;
 
     // What the blocked processes list looks at the current time
     private ArrayList<Process> blockedList;
-    private ArrayList<String> readyQueueString;
 
 
     private Process CPU; // Active process
     private AbstractStrategy strategy; // Which algorithm?
     private Process[] table; // Process table
     private int numProcesses;
+    private Process[] arrivals; // Process table sorted by arrival time
+    private int nextArrival; // index into arrivals of the next process to arrive
+    private ProcessStream source; // where arrivals are read from instead, if streaming
+    private ProcessStream releaseTo; // where completed processes go back to, if streaming
+    private int numCompleted; // how many processes have finished
+
+    // Sums over the completed processes
+    private long totalWait;
+    private long totalTurnaround;
+    private long totalResponse;
+    private LatencyReport latencies; // their distributions
+    private double[] percentiles; // which ones performanceMeasurements() prints
+    private ResultExporter exporter; // where completed processes are written, if anywhere
 
     private int timer;
+    private int quantum; // last DQRR quantum reported
     private int contextSwitch;
     private int idle;
 
-    private static ArrayList<String> DQRRstats = new ArrayList<>();
+    private boolean eventDriven; // jump from event to event instead of ticking every time unit
+    private PriorityQueue<Integer> events; // times at which something may happen
+
+    private TreeMap<Integer, String> DQRRstats; // by time they changed, only with the history
+
+    // What runScheduler() displays once the run is over, as bits
+    static final int SUMMARY = 1; // the performance measurements
+    static final int HISTORY = 2; // the state at every time unit
+    static final int GUI = 4; // the animation
+    static final int ALL_OUTPUTS = SUMMARY | HISTORY | GUI;
+
+    static final long PROGRESS_PERIOD_NSEC = 1000000000L; // how often long runs report progress
 
     public Scheduler(AbstractStrategy strategy, Process[] table) {
+        this(strategy, table, table.length);
+        // Stable sort, so processes arriving together keep their order in the table
+        arrivals = table.clone();
+        Arrays.sort(arrivals, Comparator.comparingInt(Process::getArrivalTime));
+    }
+
+    /**
+     * Streams the processes from source as they arrive. Completed processes are
+     * only counted in the performance measurements, and released. There is no
+     * process table and no history.
+     */
+    public Scheduler(AbstractStrategy strategy, ProcessStream source) {
+        this(strategy, new Process[0], source.getNumProcesses());
+        this.source = source;
+        releaseTo = source;
+        arrivals = table;
+        setRecordHistory(false);
+    }
+
+    private Scheduler(AbstractStrategy strategy, Process[] table, int numProcesses) {
         CPU = null;
         this.strategy = strategy;
         this.table = table;
-        numProcesses = table.length;
+        this.numProcesses = numProcesses;
         idle = -1;
         // to print later
         blockedList = new ArrayList<>();
-        readyQueueString = new ArrayList<>();
         contextSwitch = -1;
+        quantum = -1;
+        events = new PriorityQueue<>();
+        DQRRstats = new TreeMap<>();
+        latencies = new LatencyReport();
+        percentiles = LatencyReport.DEFAULT_PERCENTILES;
+        history = new SchedulerHistory();
+        eventSink = new ConsoleEventSink(ConsoleEventSink.TIME);
+        strategy.setEventSink(this::recordEvent);
     }
 
     public static Scheduler copyScheduler(Scheduler copy) {
-        Scheduler result = new Scheduler(AbstractStrategy.copyAbstractStrategy(copy.strategy), copy.table);
+        Process[] table = copyTable(copy.table);
+        // Every process of the copy is the one in its table, not a copy of its own
+        IdentityHashMap<Process, Process> copies = new IdentityHashMap<>();
+        for (int i = 0; i < table.length; i++) {
+            copies.put(copy.table[i], table[i]);
+        }
+        Scheduler result = new Scheduler(AbstractStrategy.copyAbstractStrategy(copy.strategy, copies), table);
         if (copy.CPU == null) {
             result.CPU = null;
-        } else result.CPU = new Process(copy.CPU);
-        result.table = new Process[copy.table.length];
-        for (int i = 0; i < copy.table.length; i++) {
-            result.table[i] = new Process(copy.table[i]);
-        }
+        } else result.CPU = copies.get(copy.CPU);
+        result.table = table;
         result.contextSwitch = copy.contextSwitch;
         result.idle = copy.idle;
+        result.arrivals = result.table.clone();
+        Arrays.sort(result.arrivals, Comparator.comparingInt(Process::getArrivalTime));
+        result.nextArrival = copy.nextArrival;
+        result.numCompleted = copy.numCompleted;
+        result.totalWait = copy.totalWait;
+        result.totalTurnaround = copy.totalTurnaround;
+        result.totalResponse = copy.totalResponse;
         result.timer = copy.timer;
-        ArrayList<Process> blocked = Strategy.getBlockedProcesses();
-        for (int i = 0; i < blocked.size(); i++) {
-            result.blockedList.add(blocked.get(i));
-        }
-        for (int i = 0; i < copy.readyQueueString.size(); i++) {
-            result.readyQueueString.add(copy.readyQueueString.get(i));
+        result.quantum = copy.quantum;
+        for (Process blocked : copy.blockedInOrder()) {
+            result.blockedList.add(copies.get(blocked));
         }
         return result;
     }
@@ -69,13 +131,13 @@ public class Scheduler {
      * 6. Save the state of scheduler into a list.
      */
     public void work() {
-        System.out.println("TIMER: " + timer);
+        eventSink.event(timer, SchedulerHistory.TIMER, -1, 0);
         // Check for arriving processes
-        for (int i = 0; i < numProcesses; i++) {
-            if (table[i].getArrivalTime() == timer) {
-                strategy.arrived(table[i]);
-                table[i].setReadyTime(timer);
-            }
+        while (nextArrivalTime() <= timer) {
+            Process process = source != null ? source.next() : arrivals[nextArrival++];
+            strategy.arrived(process);
+            process.setReadyTime(timer);
+            recordEvent(SchedulerHistory.ARRIVE, process.getPID(), process.getPriority());
         }
         // Make progress on blocked processes: see if any are ready
         strategy.progressBlocked(timer);
@@ -89,23 +151,28 @@ public class Scheduler {
         if (CPU == null) {
             Process next = strategy.next();
             if (next != null) {
-                incrementContextSwitch();
-                CPU = next;
-                if (strategy instanceof SimpleMLFQ) {
-                    ((SimpleMLFQ) strategy).resetWaitTime(CPU);
-                }
-                // Since progressReady() incremented it
-                CPU.decrementWaitingTime();
-                if (CPU.getFirstTimeOnCPU() == 0) {
-                    CPU.setFirstTimeOnCPU(timer);
-                }
-                System.out.println("Running Process" + CPU.getPID());
+                dispatch(next);
             } else incrementIdle(); // If we fail to assign a process to the CPU
         }
         record();
         incrementTimer();
     }
 
+    /**
+     * Runs next on the CPU, which must be free
+     */
+    public void dispatch(Process next) {
+        incrementContextSwitch();
+        CPU = next;
+        CPU.incrementContextSwitches();
+        // It waited from the time it became ready until now
+        CPU.incrementWaitingTime(timer - CPU.getReadyTime());
+        if (CPU.getFirstTimeOnCPU() == 0) {
+            CPU.setFirstTimeOnCPU(timer);
+        }
+        recordEvent(SchedulerHistory.DISPATCH, CPU.getPID(), 0);
+    }
+
     public void progressCPU() {
         CPU.decrementBurst(); // compute
         CPU.incrementCurrentRuntime(); // increment how long it ran for
@@ -117,6 +184,7 @@ public class Scheduler {
                     && CPU.getPriority() > 0) {
                 ((SimpleMLFQ) strategy).resetProcessRunTime(CPU);
                 CPU.decrementPriority();
+                recordEvent(SchedulerHistory.PRIORITY, CPU.getPID(), CPU.getPriority());
             }
         }
         // Did the CPU finish?
@@ -125,10 +193,13 @@ public class Scheduler {
         }
         // If not, does it need to enter IO?
         else if (CPU.finishedCurrentBurst()) {
+            Process process = CPU;
             strategy.blocked(this);
+            recordEvent(SchedulerHistory.BLOCK, process.getPID(), 0);
         }
         // If also no, did it get preempted?
         else if (strategy.preemptCondition(this) && !strategy.getReadyQueue().isEmpty()) {
+            recordEvent(SchedulerHistory.PREEMPT, CPU.getPID(), 0);
             strategy.preempt(this);
         }
     }
@@ -141,22 +212,147 @@ public class Scheduler {
      */
     public void complete() {
         CPU.setFinishTime(timer);
-        System.out.println("Process" + CPU.getPID() + " completed!");
+        CPU.setCompleted();
+        recordEvent(SchedulerHistory.COMPLETE, CPU.getPID(), 0);
+        numCompleted++;
+        totalWait += CPU.getWaitingTime();
+        totalTurnaround += CPU.getTurnaroundTime();
+        totalResponse += CPU.getResponseTime();
+        latencies.record(CPU);
+        if (exporter != null) {
+            try {
+                exporter.process(CPU, strategy instanceof SimpleMLFQ ? CPU.getPriority() : -1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Process done = CPU;
         freeCPU();
+        if (releaseTo != null) {
+            releaseTo.release(done);
+        }
     }
 
-    public boolean terminate() {
-        for (int i = 0; i < numProcesses; i++) {
-            if (table[i].getFinishTime() == 0) {
-                return false;
+    /**
+     * Gives completed processes back to source, so their storage is reused, e.g. for
+     * a CPU of a MultiCoreScheduler streaming from it
+     */
+    void releaseTo(ProcessStream source) {
+        releaseTo = source;
+    }
+
+    /**
+     * Used by the event-driven engine after work(). Time units in which nothing
+     * happens but countdowns are applied in bulk, so the next call to work()
+     * lands on the next event: an arrival, a CPU or IO burst completing, a
+     * quantum expiring, or an MLFQ promotion/demotion. Skipped time units are
+     * not recorded, but the history can rebuild them.
+     */
+    public void skipToNextEvent() {
+        scheduleEvent(nextArrivalTime());
+        if (CPU != null) {
+            scheduleEvent(timer - 1 + Math.max(CPU.getCurrentBurst(), 1)); // CPU burst completes
+        }
+        if (!strategy.getBlockedProcesses().isEmpty()) {
+            scheduleEvent(strategy.getBlockedProcesses().peek().getIOCompletionTime()); // IO completes
+        }
+        scheduleEvent(strategy.nextEventTime(this));
+        // Times already passed are left over from rescheduled events
+        while (!events.isEmpty() && events.peek() < timer) {
+            events.poll();
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        int skipped = events.peek() - timer;
+        if (skipped <= 0) {
+            return;
+        }
+        strategy.skipTicks(skipped);
+        elapse(skipped);
+    }
+
+    /**
+     * When the CPU, the blocked processes or the strategy next change anything
+     * on their own, after the time unit just worked. Integer.MAX_VALUE if never.
+     */
+    public int nextEventTime() {
+        int next = strategy.nextEventTime(this);
+        if (CPU != null) {
+            next = Math.min(next, timer - 1 + Math.max(CPU.getCurrentBurst(), 1)); // CPU burst completes
+        }
+        if (!strategy.getBlockedProcesses().isEmpty()) {
+            next = Math.min(next, strategy.getBlockedProcesses().peek().getIOCompletionTime()); // IO completes
+        }
+        return next;
+    }
+
+    /**
+     * Moves the CPU forward over time units in which nothing happens but countdowns.
+     * The strategy's own countdowns are skipTicks().
+     */
+    public void elapse(int ticks) {
+        if (CPU != null) {
+            CPU.decrementBurst(ticks);
+            CPU.incrementCurrentRuntime(ticks);
+            if (strategy instanceof SimpleMLFQ) {
+                ((SimpleMLFQ) strategy).incrementProcessRunTime(CPU, ticks);
             }
+        } else idle += ticks;
+        timer += ticks;
+    }
+
+    /**
+     * When the next process arrives, Integer.MAX_VALUE if none are left
+     */
+    private int nextArrivalTime() {
+        if (source != null) {
+            return source.peek() != null ? source.peek().getArrivalTime() : Integer.MAX_VALUE;
         }
-        return true;
+        return nextArrival < arrivals.length ? arrivals[nextArrival].getArrivalTime() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * The blocked processes in the order they blocked, as they are displayed
+     */
+    public ArrayList<Process> blockedInOrder() {
+        ArrayList<Process> result = new ArrayList<>(strategy.getBlockedProcesses());
+        result.sort(Comparator.comparingInt(Process::getBlockedTime));
+        return result;
+    }
+
+    public void scheduleEvent(int time) {
+        if (eventDriven && time != Integer.MAX_VALUE) {
+            events.add(time);
+        }
+    }
+
+    public boolean terminate() {
+        return numCompleted == numProcesses;
     }
 
     public void record() {
-        readyQueueString.add(strategy.readyQueueToString());
-        history.add(new SchedulerState(this));
+        if (strategy instanceof DQRR && ((DQRR) strategy).getQuantum() != quantum) {
+            quantum = ((DQRR) strategy).getQuantum();
+            recordEvent(SchedulerHistory.QUANTUM, -1, quantum);
+        }
+        if (history != null) {
+            history.record(this);
+        }
+    }
+
+    public void recordEvent(int type, int PID, int value) {
+        recordEvent(timer, type, PID, value);
+    }
+
+    /**
+     * Records an event in the history and reports it to the event sink
+     */
+    public void recordEvent(int time, int type, int PID, int value) {
+        if (history != null) {
+            history.addEvent(time, type, PID, value);
+        }
+        eventSink.event(time, type, PID, value);
     }
 
     public Process getCPU() {
@@ -167,6 +363,10 @@ public class Scheduler {
         return numProcesses;
     }
 
+    public int getNumCompleted() {
+        return numCompleted;
+    }
+
     public int getTimer() {
         return timer;
     }
@@ -179,6 +379,52 @@ public class Scheduler {
         return contextSwitch;
     }
 
+    // Sums over the completed processes
+
+    public long getTotalWait() {
+        return totalWait;
+    }
+
+    public long getTotalTurnaround() {
+        return totalTurnaround;
+    }
+
+    public long getTotalResponse() {
+        return totalResponse;
+    }
+
+    public LatencyReport getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Which percentiles of wait, turnaround and response time performanceMeasurements() prints
+     */
+    public void setPercentiles(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    /**
+     * Writes a row for every process as it completes. Call before running; the
+     * caller closes it.
+     */
+    public void setExporter(ResultExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+        events.clear();
+    }
+
     public void freeCPU() {
         CPU = null;
     }
@@ -195,18 +441,42 @@ public class Scheduler {
         contextSwitch++;
     }
 
-    public static ArrayList<Scheduler> getTimeline() {
-        return timeline;
+    /**
+     * null if history is not being recorded
+     */
+    public SchedulerHistory getHistory() {
+        return history;
     }
 
-    public static ArrayList<SchedulerState> getHistory() {
-        return history;
+    /**
+     * Recording history is on by default. Call before running.
+     */
+    public void setRecordHistory(boolean recordHistory) {
+        history = recordHistory ? new SchedulerHistory() : null;
     }
 
+    public EventSink getEventSink() {
+        return eventSink;
+    }
+
+    /**
+     * Events are printed to the console by default. Call before running.
+     */
+    public void setEventSink(EventSink eventSink) {
+        this.eventSink = eventSink;
+    }
+
+    /**
+     * Empty when streaming
+     */
     public Process[] getTable() {
         return table;
     }
 
+    public boolean isStreaming() {
+        return source != null;
+    }
+
     public AbstractStrategy getStrategy() {
         return strategy;
     }
@@ -219,28 +489,18 @@ public class Scheduler {
      * COMPUTE PERFORMANCE AVERAGES *
      ********************************/
 
+    // Averages over every process, once they have all completed
+
     public double averageWait() {
-        double sum = 0;
-        for (int i = 0; i < table.length; i++) {
-            sum += table[i].getWaitingTime();
-        }
-        return sum / table.length;
+        return (double) totalWait / numProcesses;
     }
 
     public double averageTurnaround() {
-        double sum = 0;
-        for (int i = 0; i < table.length; i++) {
-            sum += table[i].getTurnaroundTime();
-        }
-        return sum / table.length;
+        return (double) totalTurnaround / numProcesses;
     }
 
     public double averageResponse() {
-        double sum = 0;
-        for (int i = 0; i < table.length; i++) {
-            sum += table[i].getResponseTime();
-        }
-        return sum / table.length;
+        return (double) totalResponse / numProcesses;
     }
 
     public double utilization() {
@@ -248,64 +508,82 @@ public class Scheduler {
     }
 
     public float throughput() {
-        float numProcess = table.length;
+        float numProcess = numProcesses;
         return numProcess / (timer - 1);
     }
 
-    public void displayPerformanceMeasurements() {
-        System.out.println("Scheduling Algorithm: " + strategy.getName());
-        System.out.println("Number of Processes: " + getNumProcesses());
-        System.out.printf("CPU Utilization: %.2f\n", utilization() * 100);
-        System.out.printf("Throughput: %.4f\n", throughput());
-        System.out.printf("Average Wait Time: %.2f\n", averageWait());
-        System.out.printf("Average Turnaround Time: %.2f\n", averageTurnaround());
-        System.out.printf("Average Response Time: %.2f\n", averageResponse());
-        System.out.println("Number of Context Switches: " + contextSwitch);
-        System.out.println("===================================");
+    /**
+     * Prints how far along a long run is, estimating the time left from the rate
+     * processes have been completing so far. Goes to stderr to stay out of the history.
+     */
+    public void displayProgress(long elapsedNanos) {
+        double done = (double) numCompleted / numProcesses;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d/%d processes completed (%.1f%%), time = %d",
+                strategy.getName(), numCompleted, numProcesses, done * 100, timer));
+        if (numCompleted > 0) {
+            double remaining = elapsedNanos / 1e9 * (numProcesses - numCompleted) / numCompleted;
+            sb.append(String.format(", ETA %.0fs", remaining));
+        }
+        System.err.println(sb.toString());
     }
 
-    /****************************
-     * DISPLAY DETAILED HISTORY *
-     ****************************/
+    public void displayPerformanceMeasurements() {
+        System.out.print(performanceMeasurements());
+    }
 
-    public static void displayTimeline() {
-        for (Scheduler curr : timeline) {
-            System.out.println("Time = " + curr.timer);
-            System.out.println("PID\t\tArrival\t\tPriority\t\tBursts [CPU IO CPU ... CPU]");
-            for (int i = 0; i < curr.getNumProcesses(); i++) {
-                System.out.println(curr.table[i].getPID() + "\t\t" + curr.table[i].getArrivalTime() + "\t\t\t" +
-                        curr.table[i].getPriority() + "\t\t\t\t" + curr.table[i].burstToString());
-            }
-            if (curr.CPU != null) {
-                System.out.println("CPU: P" + curr.CPU.getPID());
-            } else {
-                System.out.println("CPU: IDLE");
-            }
+    public String performanceMeasurements() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Scheduling Algorithm: " + strategy.getName() + "\n");
+        sb.append("Number of Processes: " + getNumProcesses() + "\n");
+        sb.append(String.format("CPU Utilization: %.2f\n", utilization() * 100));
+        sb.append(String.format("Throughput: %.4f\n", throughput()));
+        sb.append(String.format("Average Wait Time: %.2f\n", averageWait()));
+        sb.append(String.format("Average Turnaround Time: %.2f\n", averageTurnaround()));
+        sb.append(String.format("Average Response Time: %.2f\n", averageResponse()));
+        sb.append("Number of Context Switches: " + contextSwitch + "\n");
+        sb.append(latencies.toString(percentiles, strategy instanceof SimpleMLFQ));
+        sb.append("===================================\n");
+        return sb.toString();
+    }
 
-            System.out.println(curr.readyQueueString.get(curr.timer));
+    /**
+     * Appends the performance measurements to the file at path, as one row of
+     * summaryFields() (see ResultExporter)
+     */
+    public void exportSummary(String path) throws IOException {
+        ArrayList<Object> values = new ArrayList<>();
+        Collections.addAll(values, strategy.getName(), getNumProcesses(), 1, timer - 1, utilization() * 100,
+                (double) throughput(), averageWait(), averageTurnaround(), averageResponse(), contextSwitch,
+                null, null);
+        latencies.addValues(values, percentiles);
+        ResultExporter.append(path, summaryFields(percentiles), values.toArray());
+    }
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("Blocked Processes: ");
-            if (curr.blockedList.size() == 0) {
-                sb.append("{ NONE }");
-            } else {
-                for (int i = 0; i < curr.blockedList.size(); i++) {
-                    sb.append("P");
-                    sb.append(curr.blockedList.get(i).getPID());
-                    sb.append(" ");
-                }
-            }
-            sb.append("\nNumber of context switches: " + curr.getContextSwitch());
-            System.out.println(sb.toString());
-            if (!DQRRstats.isEmpty()) {
-                System.out.println(DQRRstats.get(curr.timer));
-            }
-            System.out.println("===================================");
-        }
+    /**
+     * The fields of a summary row. They are the same for one CPU as for several
+     * (where load_balancing and migrations are empty), so both kinds of runs can
+     * be appended to one file.
+     */
+    public static String[] summaryFields(double[] percentiles) {
+        ArrayList<String> fields = new ArrayList<>();
+        Collections.addAll(fields, "algorithm", "processes", "cpus", "last_time", "utilization",
+                "throughput", "average_wait", "average_turnaround", "average_response", "context_switches",
+                "load_balancing", "migrations");
+        LatencyReport.addFieldNames(fields, percentiles);
+        return fields.toArray(new String[0]);
     }
 
+    /****************************
+     * DISPLAY DETAILED HISTORY *
+     ****************************/
+
     public void displayHistory() {
-        for (SchedulerState curr : history) {
+        if (history == null) {
+            return;
+        }
+        for (int t = 0; t < history.size(); t++) {
+            SchedulerState curr = history.getState(t);
             System.out.println("Time = " + curr.getTimer());
             System.out.println("PID\t\tArrival\t\tPriority\t\tBursts [CPU IO CPU ... CPU]");
             for (int i = 0; i < curr.getTable().length; i++) {
@@ -352,15 +630,17 @@ public class Scheduler {
             sb.append("\nNumber of context switches: " + curr.getContextSwitch());
             System.out.println(sb.toString());
             if (!DQRRstats.isEmpty()) {
-                System.out.println(DQRRstats.get(curr.timer));
+                // Only the changes are kept
+                System.out.println(DQRRstats.floorEntry(curr.timer).getValue());
             }
             System.out.println("===================================");
         }
     }
 
-    public class SchedulerState {
+    public static class SchedulerState {
 
         private Process[] table;
+        private Process[] byPID; // the same processes as table, indexed by PID
         private Process CPU;
         private ArrayList<PriorityQueue<Process>> readyQueue;
         private ArrayList<Process> blockedList;
@@ -374,23 +654,28 @@ public class Scheduler {
         /**
          * Captures the state of the scheduler at any given time. This is almost
          * like a copy constructor, but is capable of better representing
-         * a snapshot.
+         * a snapshot. The CPU, ready queues and blocked list refer to the
+         * copies in the table.
          * @param scheduler
          */
         public SchedulerState(Scheduler scheduler) {
-            table = new Process[scheduler.table.length];
+            table = ProcessTable.copyOf(scheduler.table).getProcesses();
+            byPID = new Process[table.length];
             for (int i = 0; i < table.length; i++) {
-                table[i] = new Process(scheduler.table[i]);
+                byPID[table[i].getPID()] = table[i];
             }
             blockedList = new ArrayList<>();
-            ArrayList<Process> blocked = Strategy.getBlockedProcesses();
+            // Blocked processes are not counted down as they wait, so do it here
+            ArrayList<Process> blocked = scheduler.blockedInOrder();
             for (int i = 0; i < blocked.size(); i++) {
-                blockedList.add(new Process(blocked.get(i)));
+                Process process = byPID[blocked.get(i).getPID()];
+                process.decrementBurst(process.getCurrentBurst() - blocked.get(i).getRemainingIO(scheduler.timer));
+                blockedList.add(process);
             }
 
             readyQueue = new ArrayList<>();
             if (scheduler.CPU != null) {
-                this.CPU = new Process(scheduler.CPU);
+                this.CPU = byPID[scheduler.CPU.getPID()];
             }
             else this.CPU = null;
 
@@ -399,14 +684,10 @@ public class Scheduler {
             if (scheduler.strategy instanceof SimpleMLFQ) {
                 SimpleMLFQ strat = (SimpleMLFQ) scheduler.strategy;
                 quantums = strat.getQuantums();
-                ArrayList<PriorityQueue<Process>> queues = strat.getReadyQueues();
-                for (int i = 0; i < queues.size(); i++) {
-                    PriorityQueue<Process> queue = queues.get(i);
-                    readyQueue.add(i, new PriorityQueue<>(queue.comparator()));
-                    Iterator<Process> itr = queue.iterator();
-                    while (itr.hasNext()) {
-                        readyQueue.get(i).add(new Process(itr.next()));
-                    }
+                AbstractStrategy[] strategies = strat.getStrategies();
+                for (int i = 0; i < strategies.length; i++) {
+                    ReadyQueue ready = strategies[i].getReadyQueue();
+                    readyQueue.add(copyQueue(ready, ready.comparator()));
                 }
             }
             else {
@@ -416,18 +697,163 @@ public class Scheduler {
                 if (scheduler.strategy instanceof DQRR) {
                     quantums[0] = ((DQRR) scheduler.strategy).getQuantum();
                 }
-                PriorityQueue<Process> queue = scheduler.getStrategy().getReadyQueue();
-                readyQueue.add(new PriorityQueue<>(queue.comparator()));
-                Iterator<Process> itr = queue.iterator();
-                while (itr.hasNext()) {
-                    readyQueue.get(0).add(new Process(itr.next()));
-                }
+                ReadyQueue ready = scheduler.getStrategy().getReadyQueue();
+                readyQueue.add(copyQueue(ready, ready.comparator()));
             }
             timer = scheduler.timer;
             contextSwitch = scheduler.contextSwitch;
             idle = scheduler.idle;
         }
 
+        /**
+         * Deep copy of another snapshot, used to rebuild states from a keyframe.
+         * @param copy
+         */
+        public SchedulerState(SchedulerState copy) {
+            table = ProcessTable.copyOf(copy.table).getProcesses();
+            byPID = new Process[table.length];
+            for (int i = 0; i < table.length; i++) {
+                byPID[table[i].getPID()] = table[i];
+            }
+            blockedList = new ArrayList<>();
+            for (int i = 0; i < copy.blockedList.size(); i++) {
+                blockedList.add(byPID[copy.blockedList.get(i).getPID()]);
+            }
+            if (copy.CPU != null) {
+                CPU = byPID[copy.CPU.getPID()];
+            }
+            readyQueue = new ArrayList<>();
+            for (int i = 0; i < copy.readyQueue.size(); i++) {
+                readyQueue.add(copyQueue(copy.readyQueue.get(i), copy.readyQueue.get(i).comparator()));
+            }
+            quantums = copy.quantums.clone();
+            timer = copy.timer;
+            contextSwitch = copy.contextSwitch;
+            idle = copy.idle;
+        }
+
+        private PriorityQueue<Process> copyQueue(Collection<Process> queue, Comparator<? super Process> comparator) {
+            PriorityQueue<Process> result = new PriorityQueue<>(comparator);
+            Iterator<Process> itr = queue.iterator();
+            while (itr.hasNext()) {
+                result.add(byPID[itr.next().getPID()]);
+            }
+            return result;
+        }
+
+        /*****************************************
+         * REPLAY (used to rebuild from keyframes) *
+         *****************************************/
+
+        /**
+         * Moves forward over time units in which no events happened: the running
+         * and blocked processes count down and an empty CPU sits idle.
+         */
+        void elapse(int ticks) {
+            if (ticks <= 0) {
+                return;
+            }
+            countDown(ticks);
+            if (CPU == null) {
+                idle += ticks;
+            }
+            timer += ticks;
+        }
+
+        /**
+         * Moves to a time unit in which events happened, before applying them
+         */
+        void startTimeUnit(int time) {
+            countDown(1);
+            timer = time;
+        }
+
+        void endTimeUnit(boolean dispatched) {
+            if (!dispatched && CPU == null) {
+                idle++;
+            }
+        }
+
+        private void countDown(int ticks) {
+            for (int i = 0; i < blockedList.size(); i++) {
+                blockedList.get(i).decrementBurst(ticks);
+            }
+            if (CPU != null) {
+                CPU.decrementBurst(ticks);
+                CPU.incrementCurrentRuntime(ticks);
+            }
+        }
+
+        /**
+         * Applies one recorded event the way the scheduler and strategies did
+         */
+        void apply(int type, int PID, int value) {
+            Process process = PID >= 0 ? byPID[PID] : null;
+            switch (type) {
+                case SchedulerHistory.ARRIVE:
+                    process.setPriority(value);
+                    process.setReadyTime(timer);
+                    readyQueueOf(process).add(process);
+                    break;
+                case SchedulerHistory.UNBLOCK:
+                    process.incrementTracker();
+                    blockedList.remove(process);
+                    process.setReadyTime(timer);
+                    readyQueueOf(process).add(process);
+                    break;
+                case SchedulerHistory.PRIORITY:
+                    if (process == CPU) {
+                        process.setPriority(value);
+                    }
+                    else {
+                        readyQueueOf(process).remove(process);
+                        process.setPriority(value);
+                        process.setReadyTime(timer);
+                        readyQueueOf(process).add(process);
+                    }
+                    break;
+                case SchedulerHistory.COMPLETE:
+                    process.setFinishTime(timer);
+                    process.setCompleted();
+                    CPU = null;
+                    break;
+                case SchedulerHistory.BLOCK:
+                    process.resetCurrentRuntime();
+                    process.incrementTracker();
+                    blockedList.add(process);
+                    CPU = null;
+                    break;
+                case SchedulerHistory.PREEMPT:
+                    process.resetCurrentRuntime();
+                    process.setReadyTime(timer);
+                    readyQueueOf(process).add(process);
+                    CPU = null;
+                    break;
+                case SchedulerHistory.DISPATCH:
+                    readyQueueOf(process).remove(process);
+                    CPU = process;
+                    CPU.incrementContextSwitches();
+                    contextSwitch++;
+                    if (CPU.getFirstTimeOnCPU() == 0) {
+                        CPU.setFirstTimeOnCPU(timer);
+                    }
+                    break;
+                case SchedulerHistory.QUANTUM:
+                    quantums[0] = value;
+                    break;
+            }
+        }
+
+        /**
+         * Only MLFQ has multiple ready queues, one per priority level
+         */
+        private PriorityQueue<Process> readyQueueOf(Process process) {
+            if (readyQueue.size() > 1) {
+                return readyQueue.get(process.getPriority());
+            }
+            return readyQueue.get(0);
+        }
+
         public Process[] getTable() {
             return table;
         }
@@ -462,19 +888,70 @@ public class Scheduler {
 
     }
 
+    /**
+     * The state before time 0, when nothing has arrived yet, from which a history
+     * can be replayed
+     */
+    static SchedulerState initialState(AbstractStrategy strategy, Process[] table) {
+        SchedulerState result = new SchedulerState(new Scheduler(strategy, table));
+        result.timer = -1;
+        return result;
+    }
+
+    /**
+     * Simulates until every process has completed
+     */
+    public void run() {
+        if (strategy instanceof DQRR && history != null) { // only displayed with the history
+            DQRR dqrr = (DQRR) strategy;
+            DQRRstats.put(timer - 1, dqrr.displayStats());
+            dqrr.setStatsObserver((sumBurst, avgBurst, quantum) ->
+                    DQRRstats.put(timer, DQRR.statsToString(sumBurst, avgBurst, quantum)));
+        }
+        long start = System.nanoTime();
+        long lastProgress = start;
+        while (!terminate()) {
+            work();
+            if (eventDriven && !terminate()) {
+                skipToNextEvent();
+            }
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_PERIOD_NSEC) {
+                lastProgress = now;
+                displayProgress(now - start);
+            }
+        }
+    }
+
     /**
      * The method to run the scheduler.
      * @param scheduler
      */
     public static void runScheduler(Scheduler scheduler) {
-        while (!scheduler.terminate()) {
-            scheduler.work();
-            if (scheduler.strategy instanceof DQRR) {
-                DQRRstats.add(((DQRR) scheduler.strategy).displayStats());
-            }
+        runScheduler(scheduler, ALL_OUTPUTS);
+    }
+
+    /**
+     * Runs the scheduler, then displays the outputs asked for
+     * @param outputs: SUMMARY, HISTORY and/or GUI. The last two need the history
+     *               to be recorded.
+     */
+    public static void runScheduler(Scheduler scheduler, int outputs) {
+        scheduler.run();
+        scheduler.getEventSink().close(); // before anything else is printed
+        if ((outputs & HISTORY) != 0) {
+            scheduler.displayHistory();
+        }
+        if ((outputs & SUMMARY) != 0) {
+            scheduler.displayPerformanceMeasurements();
+        }
+        if ((outputs & GUI) == 0) {
+            return;
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("No display to animate the run on");
+            return;
         }
-        scheduler.displayHistory();
-        scheduler.displayPerformanceMeasurements();
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -488,7 +965,36 @@ public class Scheduler {
     }
 
     /**
-     * Usage: java Scheduler "path_to_process_table.txt" algorithm
+     * Usage: java Scheduler "path_to_process_table.txt" algorithm [quantum] [-e] [-stream]
+     * The table may also be in the binary format of WorkloadFile.
+     * -e: use the event-driven engine, which jumps between events instead of
+     * simulating every time unit
+     * -stream: read processes as they arrive instead of all at once, for tables too
+     * big to hold in memory. The file must be sorted by arrival time. Only the
+     * performance measurements are displayed.
+     * -log none|process|time|detail: which events to print as they happen, written
+     * out on a background thread (default time)
+     * -log-drop: drop events rather than wait when the background thread falls
+     * behind, so the log may be incomplete
+     * -trace "path_to_trace": also write the events to a trace file, gzipped if the
+     * path ends with .gz, which java EventTrace can animate later
+     * -cores N: simulate N CPUs (see MultiCoreScheduler). Only the performance
+     * measurements are displayed.
+     * -balance global|rebalance|steal: how the CPUs share the ready processes
+     * (default steal)
+     * -period P: how often rebalance moves processes (default 10)
+     * -percentiles 50,90,99.9: which percentiles of wait, turnaround and response
+     * time to display (default 50,90,99), along with the maximum
+     * -output summary,history,gui: what to display once the run is over: the
+     * performance measurements, the state at every time unit and/or the animation
+     * (default all three, only the summary with -stream or -cores). The history is
+     * only recorded for the last two. "none" displays nothing.
+     * -batch: the same as -output summary -log none, for servers
+     * -export "path.csv" or "path.jsonl": write a row for every process as it
+     * completes, as CSV or JSON Lines (see ResultExporter)
+     * -export-summary "path.csv" or "path.jsonl": add a row with the performance
+     * measurements of the run to the end of the file. A CSV file must have been
+     * written with the same -percentiles.
      * @param args
      * @throws IOException
      */
@@ -499,60 +1005,259 @@ public class Scheduler {
         The first line is an integer, defining the number of processes
         Each line after begins with process ID, and should be in order from 0 to
         number of processes - 1
-        The subsequent lines are eight integers separated by a space
+        The subsequent lines are integers separated by spaces or tabs: the PID,
+        arrival time and priority, then any odd number of bursts, e.g.
         PID arrivalTime Priority CPUBurst0 IOBurst0 CPUBurst1 IOBurst1 CPUBurst2
          */
-        String line;
-        int pid, arrival,priority;
-        int[] burst;
-        //input filename as parameter
-        BufferedReader br = new BufferedReader (new FileReader(args[0]));
-        //first line is number of processes
-        int number_of_process = Integer.parseInt(br.readLine());
-        Process[] table = new Process[number_of_process];
-        int icount = 0;
-        while ((line = br.readLine() ) != null && icount < number_of_process){
-            StringTokenizer st = new StringTokenizer(line);
-            pid = Integer.parseInt(st.nextToken());
-            arrival = Integer.parseInt(st.nextToken());
-            priority = Integer.parseInt(st.nextToken());
-            burst = new int[5]; // To support 5 bursts (can change to any odd value)
-            // Make sure the text file being imported has the correct number of bursts
-            for (int i = 0; i<burst.length; i++){
-                burst[i] = Integer.parseInt(st.nextToken());
-            }
-            Process process = new Process (pid, arrival,priority,burst);
-            table[icount] = process;
-            icount++;
-        }
-        Scheduler scheduler = null;
-        switch (args[1]) {
+        boolean eventDriven = false;
+        boolean streaming = false;
+        int logLevel = ConsoleEventSink.TIME;
+        boolean logDrop = false;
+        String trace = null;
+        int numCores = 1;
+        int balance = MultiCoreScheduler.STEAL;
+        int period = 10;
+        double[] percentiles = LatencyReport.DEFAULT_PERCENTILES;
+        int outputs = -1; // the default for the kind of run
+        String export = null;
+        String exportSummary = null;
+        ArrayList<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-e")) {
+                eventDriven = true;
+            }
+            else if (args[i].equals("-stream")) {
+                streaming = true;
+            }
+            else if (args[i].equals("-log")) {
+                logLevel = ConsoleEventSink.parseLevel(args[++i]);
+            }
+            else if (args[i].equals("-log-drop")) {
+                logDrop = true;
+            }
+            else if (args[i].equals("-trace")) {
+                trace = args[++i];
+            }
+            else if (args[i].equals("-cores")) {
+                numCores = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-balance")) {
+                balance = MultiCoreScheduler.parseBalance(args[++i]);
+            }
+            else if (args[i].equals("-period")) {
+                period = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-percentiles")) {
+                percentiles = LatencyReport.parsePercentiles(args[++i]);
+            }
+            else if (args[i].equals("-output")) {
+                outputs = parseOutputs(args[++i]);
+            }
+            else if (args[i].equals("-export")) {
+                export = args[++i];
+            }
+            else if (args[i].equals("-export-summary")) {
+                exportSummary = args[++i];
+            }
+            else if (args[i].equals("-batch")) {
+                outputs = SUMMARY;
+                logLevel = ConsoleEventSink.parseLevel("none");
+            }
+            else positional.add(args[i]);
+        }
+        args = positional.toArray(new String[0]);
+        if (exportSummary != null) {
+            // Rather than after the whole run
+            ResultExporter.checkFields(exportSummary, summaryFields(percentiles));
+        }
+        int quantum = args.length == 3 ? Integer.parseInt(args[2]) : 0;
+        if (numCores > 1 || streaming) {
+            if (outputs == -1) {
+                outputs = SUMMARY;
+            }
+            if ((outputs & ~SUMMARY) != 0) {
+                throw new IllegalArgumentException("Only the summary is kept with -stream or -cores");
+            }
+        }
+        else if (outputs == -1) {
+            outputs = ALL_OUTPUTS;
+        }
+        if (numCores > 1) {
+            if (trace != null) {
+                throw new IllegalArgumentException("Traces are of one CPU only");
+            }
+            runMultiCore(args[0], args[1], quantum, streaming, eventDriven, logLevel, logDrop, numCores, balance,
+                    period, percentiles, outputs, export, exportSummary);
+            return;
+        }
+        try (ResultExporter exporter = export != null ? new ResultExporter(export, false) : null) {
+            Scheduler scheduler;
+            if (streaming) {
+                try (ProcessStream source = new ProcessStream(args[0])) {
+                    scheduler = new Scheduler(createStrategy(args[1], source.getNumProcesses(), quantum), source);
+                    scheduler.setEventDriven(eventDriven);
+                    scheduler.setPercentiles(percentiles);
+                    scheduler.setExporter(exporter);
+                    scheduler.setEventSink(
+                            eventSink(logLevel, logDrop, trace, args[1], quantum, source.getNumProcesses()));
+                    runScheduler(scheduler, outputs);
+                }
+            }
+            else {
+                Process[] table = readTable(args[0]);
+                scheduler = new Scheduler(createStrategy(args[1], table.length, quantum), table);
+                scheduler.setEventDriven(eventDriven);
+                scheduler.setPercentiles(percentiles);
+                scheduler.setExporter(exporter);
+                // Only the history dump and the animation look at it
+                scheduler.setRecordHistory((outputs & (HISTORY | GUI)) != 0);
+                scheduler.setEventSink(eventSink(logLevel, logDrop, trace, args[1], quantum, table.length));
+                runScheduler(scheduler, outputs);
+            }
+            if (exportSummary != null) {
+                scheduler.exportSummary(exportSummary);
+            }
+        }
+    }
+
+    private static void runMultiCore(String path, String algorithm, int quantum, boolean streaming,
+                                     boolean eventDriven, int logLevel, boolean logDrop, int numCores,
+                                     int balance, int period, double[] percentiles, int outputs, String export,
+                                     String exportSummary)
+            throws IOException {
+        ProcessStream source = streaming ? new ProcessStream(path) : null;
+        ResultExporter exporter = null;
+        try {
+            Process[] table = streaming ? null : readTable(path);
+            int numProcesses = streaming ? source.getNumProcesses() : table.length;
+            AbstractStrategy[] strategies =
+                    MultiCoreScheduler.createStrategies(algorithm, numProcesses, quantum, numCores, balance);
+            MultiCoreScheduler scheduler = streaming ?
+                    new MultiCoreScheduler(strategies, balance, period, source) :
+                    new MultiCoreScheduler(strategies, balance, period, table);
+            scheduler.setEventDriven(eventDriven);
+            scheduler.setPercentiles(percentiles);
+            if (export != null) {
+                exporter = new ResultExporter(export, false);
+                scheduler.setExporter(exporter);
+            }
+            scheduler.setEventSink(eventSink(logLevel, logDrop, null, algorithm, quantum, numProcesses));
+            scheduler.run();
+            scheduler.getEventSink().close();
+            if ((outputs & SUMMARY) != 0) {
+                scheduler.displayPerformanceMeasurements();
+            }
+            if (exportSummary != null) {
+                scheduler.exportSummary(exportSummary);
+            }
+        } finally {
+            if (exporter != null) {
+                exporter.close();
+            }
+            if (source != null) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Parses a comma-separated list like "summary,gui"
+     * @return SUMMARY, HISTORY and/or GUI, or 0 for "none"
+     */
+    public static int parseOutputs(String list) {
+        int result = 0;
+        for (String name : list.split(",")) {
+            switch (name.trim()) {
+                case "none":
+                    break;
+                case "summary":
+                    result |= SUMMARY;
+                    break;
+                case "history":
+                    result |= HISTORY;
+                    break;
+                case "gui":
+                    result |= GUI;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown output: " + name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prints events at or above level on a background thread, through a buffer
+     * of its own so the lines are not flushed one at a time. Also writes them
+     * to the trace file, if any.
+     * @param drop: drop events when the background thread falls behind, instead
+     * of waiting for it
+     */
+    static EventSink eventSink(int level, boolean drop, String trace, String algorithm, int quantum,
+                               int numProcesses) throws IOException {
+        EventSink result = EventSink.NONE;
+        if (level != Integer.MAX_VALUE) {
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+            result = new AsyncEventSink(new ConsoleEventSink(out, level), AsyncEventSink.DEFAULT_CAPACITY, drop);
+        }
+        if (trace != null) {
+            // Written as it happens, since a trace must not drop events
+            EventTrace traceSink = new EventTrace(trace, algorithm, quantum, numProcesses);
+            result = result == EventSink.NONE ? traceSink : EventSink.both(result, traceSink);
+        }
+        return result;
+    }
+
+    /**
+     * The strategy for an algorithm named on the command line
+     * @param quantum: for round robin, 0 for the default
+     */
+    public static AbstractStrategy createStrategy(String algorithm, int numProcesses, int quantum) {
+        switch (algorithm) {
             case "FCFS": // first-come, first-served
-                scheduler = new Scheduler(new FCFS(), table);
-                break;
+                return new FCFS();
             case "P": // simple priority queue
-                scheduler = new Scheduler(new Priority(), table);
-                break;
+                return new Priority();
             case "SJF": // shortest job first
-                scheduler = new Scheduler(new SJF(), table);
-                break;
+                return new SJF();
             case "SJRF": // shortest job remaining first
-                scheduler = new Scheduler(new SJRF(), table);
-                break;
+                return new SJRF();
             case "RR": // round robin
-                if (args.length == 3) {
-                    scheduler = new Scheduler(new RoundRobin(Integer.parseInt(args[2])), table);
+                if (quantum > 0) {
+                    return new RoundRobin(quantum);
                 }
-                else scheduler = new Scheduler(new RoundRobin(), table);
-                break;
+                return new RoundRobin();
             case "DQRR": // dynamic queue round robin
-                scheduler = new Scheduler(new DQRR(), table);
-                break;
+                return new DQRR();
             case "MLFQ": // multi level feedback queue
-                scheduler = new Scheduler(new SimpleMLFQ(table.length), table);
-                break;
+                return new SimpleMLFQ();
+        }
+        throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+    }
+
+    /**
+     * Reads a process table from a text file (see main() for the format), or from
+     * a binary one (see WorkloadFile)
+     */
+    public static Process[] readTable(String path) throws IOException {
+        if (WorkloadFile.isBinary(path)) {
+            return WorkloadFile.read(path);
+        }
+        try (TableReader reader = new TableReader(path)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Fresh copies of every process, so one workload can be simulated more than once.
+     * A table made in one piece, as readTable() and TableCreation make them, is
+     * copied with ProcessTable.copy(), an array copy per field.
+     */
+    public static Process[] copyTable(Process[] table) {
+        if (ProcessTable.isWhole(table)) {
+            return table[0].getTable().copy().getProcesses();
         }
-        runScheduler(scheduler);
+        return ProcessTable.copyOf(table).getProcesses();
     }
 
 }
@@ -1,16 +1,22 @@
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.PriorityQueue;
 
 /**
  * Intended to run after the Scheduler program has run, since it uses information
- * calculated by Scheduler. This program will pause every time a context switch occurs.
+ * calculated by Scheduler. By default this program will pause every time a context
+ * switch occurs.
  * For scheduling stats, refer to output generated by Scheduler.
  */
 
@@ -24,30 +30,54 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
             Color.BLUE, Color.RED, Color.CYAN,
             Color.MAGENTA, Color.ORANGE,
             Color.YELLOW, Color.PINK, Color.GREEN};
-    // 8 Colors to support up to 8 processes (for animation only)
+    // The first 8 processes get these, the others a generated color (see colorOf())
+    static final int DETAIL_LIMIT = 32; // above this many processes, show the heatmap
 
-    static final ArrayList<Scheduler.SchedulerState> history = Scheduler.getHistory();
-    static AbstractStrategy strategy;
+    final SchedulerHistory history;
+    AbstractStrategy strategy;
 
     Container cp;
 
     JScrollPane table;
     JLabel timer;
     QueueDisplay queues; // for the queues
+    HeatmapDisplay heatmap; // for the queues and processes, when there are too many to draw
+    boolean detailed; // which of the two is showing
     Timeline timeline; // displaying CPU history
 
-    static int time = 0; // current time, use this to access ArrayList<Scheduler>
+    int time = 0; // current time, use this to access the history
 
     private boolean PAUSED = true;
 
+    // Time units per frame the animation can be played at
+    static final int[] SPEEDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private javax.swing.Timer clock;
+    private long lastFrame; // when the clock last ticked, in nanoseconds
+    private double pending; // time units owed to the animation by the frames so far
+    private int speed; // index into SPEEDS
+
+    JButton play;
+    JComboBox<String> speedChooser;
+    JCheckBox stopAtSwitches;
+    JSlider scrubber;
+
     // Adding all the necessary components to our Frame
     public SchedulerAnimation(Scheduler scheduler) {
-        strategy = scheduler.getStrategy();
+        this(scheduler.getHistory(), scheduler.getStrategy());
+    }
+
+    /**
+     * Animates a history recorded elsewhere, e.g. read back from an EventTrace
+     */
+    public SchedulerAnimation(SchedulerHistory history, AbstractStrategy strategy) {
+        this.history = history;
+        this.strategy = strategy;
 
         cp = getContentPane();
         cp.setLayout(new BorderLayout());
 
-        table = new JScrollPane(new ProcessTable().processTable);
+        table = new JScrollPane(new ProcessTablePanel().processTable);
         table.setPreferredSize(new Dimension(WIDTH, 140));
         cp.add(table, BorderLayout.NORTH);
 
@@ -58,15 +88,20 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
         cp.add(timer, BorderLayout.EAST);
 
         queues = new QueueDisplay(strategy.getNumStrategies());
-        cp.add(queues, BorderLayout.CENTER);
+        heatmap = new HeatmapDisplay();
+        detailed = heatmap.numProcesses <= DETAIL_LIMIT;
+        cp.add(detailed ? queues : heatmap, BorderLayout.CENTER);
 
         timeline = new Timeline();
-        timeline.setPreferredSize(new Dimension(WIDTH * 8, 200));
 
         JScrollPane scroll = new JScrollPane(timeline);
         scroll.setPreferredSize(new Dimension(WIDTH, 200));
+        scroll.getHorizontalScrollBar().setUnitIncrement(20);
 
-        cp.add(scroll, BorderLayout.SOUTH);
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(scroll, BorderLayout.CENTER);
+        bottom.add(createControls(), BorderLayout.SOUTH);
+        cp.add(bottom, BorderLayout.SOUTH);
 
         cp.revalidate();
         cp.repaint();
@@ -80,17 +115,22 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
         setFocusable(true);
         requestFocus();
 
+        seek(0);
         start();
     }
 
+    /**
+     * Starts the clock that plays the animation, on the event dispatch thread
+     */
     public void start() {
-        Thread thread = new Thread() {
+        lastFrame = System.nanoTime();
+        clock = new javax.swing.Timer((int) (UPDATE_PERIOD_NSEC / 1000000), new ActionListener() {
             @Override
-            public void run() {
-                loop();
+            public void actionPerformed(ActionEvent e) {
+                frame();
             }
-        };
-        thread.start();
+        });
+        clock.start();
     }
 
     @Override
@@ -99,17 +139,42 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
     }
 
     /**
-     * Press "1" or "SPACEBAR" to pause/unpause
+     * Press "1" or "SPACEBAR" to pause/unpause, the left and right arrows to step
+     * to the previous or next event, the up and down arrows to play faster or slower,
+     * "+" and "-" to zoom the timeline (or turn the mouse wheel over it holding Ctrl),
+     * "H" to switch between the queues and the heatmap
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        switch (e.getKeyChar()) {
-            case KeyEvent.VK_1: {
-                PAUSED = !PAUSED;
-            }
-            case KeyEvent.VK_SPACE: {
-                PAUSED = !PAUSED;
-            }
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_1:
+            case KeyEvent.VK_SPACE:
+                setPaused(!PAUSED);
+                break;
+            case KeyEvent.VK_RIGHT:
+                stepForward();
+                break;
+            case KeyEvent.VK_LEFT:
+                stepBack();
+                break;
+            case KeyEvent.VK_UP:
+                speedChooser.setSelectedIndex(Math.min(speed + 1, SPEEDS.length - 1));
+                break;
+            case KeyEvent.VK_DOWN:
+                speedChooser.setSelectedIndex(Math.max(speed - 1, 0));
+                break;
+            case KeyEvent.VK_EQUALS:
+            case KeyEvent.VK_PLUS:
+            case KeyEvent.VK_ADD:
+                timeline.zoom(1.25, timeline.getVisibleRect().x + timeline.getVisibleRect().width / 2);
+                break;
+            case KeyEvent.VK_MINUS:
+            case KeyEvent.VK_SUBTRACT:
+                timeline.zoom(0.8, timeline.getVisibleRect().x + timeline.getVisibleRect().width / 2);
+                break;
+            case KeyEvent.VK_H:
+                setDetailed(!detailed);
+                break;
         }
     }
 
@@ -119,53 +184,184 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
     }
 
     /**
-     * The thread that governs this loop was obtained from
-     * http://www.java-gaming.org/index.php?topic=24220.0
+     * Called by the clock about UPDATES_PER_SEC times a second. Moves as many time
+     * units as the frames that really elapsed call for at the chosen speed, so a late
+     * frame catches up instead of slowing the animation down. Time units in between
+     * are skipped, except that it stops at the first context switch if asked to.
      */
-    public void loop() {
-        long start, elapsed, remain;   // in ms
-        // Loop
-        int count = 0;
-        while (time < history.size() - 1) {
-            if (PAUSED) {
-                System.console();
-            } else {
-                start = System.nanoTime();
-                // Refresh the display
-                timeline.update();
-                timeline.repaint();
-                // Delay timer to provide the necessary delay to meet the target rate
-                elapsed = System.nanoTime() - start;
-                count++;
-                if (count % 60 == 0) {
-                    // Note that since UPDATES_PER_SECOND = 60, count % 60 == 0
-                    // is needed to increment the timer every second. To speed
-                    // up the timer, can simply decrease 60 to a smaller amount.
-                    count = 0;
-                    time++;
-                    queues.update();
-                    queues.repaint();
-                    PAUSED = timeline.pauseTimes[time];
-                    timer.setText(Integer.toString(time));
-                }
-                remain = (UPDATE_PERIOD_NSEC - elapsed) / 1000000;  // in milliseconds
-                if (remain < 17) remain = 17;   // set a minimum
-                try {
-                    // Provides the necessary delay
-                    Thread.sleep(remain);
-                } catch (InterruptedException ex) {
-                }
+    private void frame() {
+        long now = System.nanoTime();
+        double frames = (double) (now - lastFrame) / UPDATE_PERIOD_NSEC;
+        lastFrame = now;
+        if (PAUSED) {
+            return;
+        }
+        pending += frames * SPEEDS[speed];
+        int ticks = (int) pending;
+        if (ticks == 0) {
+            return;
+        }
+        pending -= ticks;
+        int target = (int) Math.min((long) time + ticks, history.size() - 1);
+        boolean stop = target == history.size() - 1;
+        if (stopAtSwitches.isSelected()) {
+            int next = timeline.nextContextSwitch(time);
+            if (next != -1 && next <= target) {
+                target = next;
+                stop = true;
             }
         }
+        seek(target);
+        if (stop) {
+            setPaused(true);
+        }
+    }
+
+    /**
+     * Shows the state at the given time. Rebuilding it from the history starts at
+     * the keyframe before it, so jumping anywhere costs about the same.
+     */
+    public void seek(int time) {
+        time = Math.max(0, Math.min(time, history.size() - 1));
+        int from = this.time;
+        this.time = time;
+        if (detailed) {
+            queues.update();
+            queues.repaint();
+        }
+        else heatmap.repaint();
+        if (time >= from) {
+            timeline.update(from);
+        }
+        else timeline.repaint();
+        timeline.scrollToTime(time);
+        timer.setText(Integer.toString(time));
+        if (scrubber.getValue() != time) {
+            scrubber.setValue(time);
+        }
+    }
+
+    /**
+     * Moves to the next time unit in which something happened
+     */
+    public void stepForward() {
+        setPaused(true);
+        int next = history.nextEventTime(time);
+        seek(next == -1 ? history.size() - 1 : next);
+    }
+
+    /**
+     * Moves to the last time unit before this one in which something happened
+     */
+    public void stepBack() {
+        setPaused(true);
+        seek(Math.max(history.previousEventTime(time), 0));
+    }
+
+    /**
+     * Shows every process in the queues, or the heatmap
+     */
+    public void setDetailed(boolean detailed) {
+        if (detailed == this.detailed) {
+            return;
+        }
+        this.detailed = detailed;
+        cp.remove(detailed ? heatmap : queues);
+        cp.add(detailed ? queues : heatmap, BorderLayout.CENTER);
+        if (detailed) {
+            queues.update();
+        }
+        cp.revalidate();
+        cp.repaint();
     }
 
+    public void setPaused(boolean paused) {
+        if (!paused && time == history.size() - 1) {
+            seek(0); // play again from the start
+        }
+        PAUSED = paused;
+        pending = 0;
+        play.setText(paused ? "Play" : "Pause");
+    }
 
-    class ProcessTable extends JPanel {
+    /**
+     * The controls under the timeline. None of them takes the focus, so the keys
+     * keep working.
+     */
+    private JPanel createControls() {
+        JPanel controls = new JPanel(new BorderLayout());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+
+        play = new JButton("Play");
+        play.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setPaused(!PAUSED);
+            }
+        });
+        JButton back = new JButton("<");
+        back.setToolTipText("Previous event");
+        back.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stepBack();
+            }
+        });
+        JButton forward = new JButton(">");
+        forward.setToolTipText("Next event");
+        forward.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stepForward();
+            }
+        });
+
+        String[] names = new String[SPEEDS.length];
+        for (int i = 0; i < SPEEDS.length; i++) {
+            names[i] = SPEEDS[i] + "x";
+        }
+        speedChooser = new JComboBox<>(names);
+        speedChooser.setToolTipText("Time units per frame");
+        speedChooser.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                speed = speedChooser.getSelectedIndex();
+                pending = 0;
+            }
+        });
+
+        stopAtSwitches = new JCheckBox("Stop at context switches", true);
+
+        scrubber = new JSlider(0, Math.max(history.size() - 1, 0), 0);
+        scrubber.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                if (scrubber.getValue() != time) {
+                    seek(scrubber.getValue());
+                }
+            }
+        });
+
+        JComponent[] all = {play, back, forward, speedChooser, stopAtSwitches, scrubber};
+        for (JComponent component : all) {
+            component.setFocusable(false);
+        }
+        buttons.add(play);
+        buttons.add(back);
+        buttons.add(forward);
+        buttons.add(speedChooser);
+        buttons.add(stopAtSwitches);
+        controls.add(buttons, BorderLayout.WEST);
+        controls.add(scrubber, BorderLayout.CENTER);
+        return controls;
+    }
+
+    class ProcessTablePanel extends JPanel {
 
         JTable processTable;
 
-        public ProcessTable() {
-            Process[] table = history.get(0).getTable();
+        public ProcessTablePanel() {
+            Process[] table = history.getState(0).getTable();
             Object columns[] = {"PID", "ARRIVAL", "PRIORITY", "BURSTS"};
             Object rows[][] = new Object[table.length][4];
             for (int i = 0; i < table.length; i++) {
@@ -182,82 +378,150 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
 
     }
 
+    /**
+     * The CPU over time, drawn from the run-length encoded history of who held it, so
+     * only the runs inside the visible part of the scroll pane are looked at
+     */
     class Timeline extends JPanel {
 
-        private int y1;
-        private int widthUnit;
-        // increase width to increase number of context switches supported
-        private int width = SchedulerAnimation.WIDTH * 8; // make 8 higher if processes begin to overlap
-        ProcessBlock[] run;
-        boolean[] pauseTimes;
+        static final int Y = 54;
+        static final int BLOCK_HEIGHT = 50;
+        static final double MAX_SCALE = 200;
 
+        private SchedulerHistory.CPURuns runs;
+        private double scale = 20; // pixels per time unit
 
         public Timeline() {
-            setPreferredSize(new Dimension(1920, 100));
-            y1 = 54;
-            widthUnit = 60;
-            buildRun();
+            runs = history.getCPURuns();
+            addMouseWheelListener(new MouseWheelListener() {
+                @Override
+                public void mouseWheelMoved(MouseWheelEvent e) {
+                    if (e.isControlDown()) {
+                        zoom(Math.pow(1.25, -e.getPreciseWheelRotation()), e.getX());
+                    }
+                    else getParent().dispatchEvent(SwingUtilities.convertMouseEvent(Timeline.this, e, getParent()));
+                }
+            });
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension((int) Math.ceil(history.size() * scale), 200);
         }
 
         /**
-         * To visualize the simulation, we do not calculate anything in real time.
-         * The scheduler runs, creating snapshots of the states of the scheduler
-         * at each time unit. We use these snapshots to provide the visualization.
+         * Zooms by factor, keeping what is under x where it is on the screen
          */
-        public void buildRun() {
-            int tracker = 0; // to organize offsets
-            run = new ProcessBlock[history.size()];
-            pauseTimes = new boolean[history.size()];
-            for (int i = 0; i < history.size(); i++) {
-                pauseTimes[i] = true; // we pause whenever there's a context switch
-                Process CPU = history.get(i).getCPU();
-                if (CPU == null) {
-                    run[i] = new ProcessBlock(tracker * widthUnit, y1, -1, 1, Color.GRAY);
-                }
-                else {
-                    run[i] = new ProcessBlock(tracker * widthUnit, y1, CPU.getPID(),
-                            CPU.getCurrentRuntime() + 1, COLORS[CPU.getPID()]);
-                }
-                // To merge process blocks:
-                if (i > 0 && run[i].PID == run[i-1].PID) {
-                    run[i].x = run[i-1].x; // make current block the last block
-                    run[i].count = run[i-1].count + 1; // increment block's counter
-                    tracker--; // decrement tracker since we increment it later
-                    // we don't actually want to decrement it here
-                    pauseTimes[i] = false; // No pause since no context switch
-                }
-                tracker++;
-                run[i].width = widthUnit;
-            }
+        public void zoom(double factor, int x) {
+            double time = x / scale;
+            // No narrower than the window, no wider than Swing can scroll
+            double min = Math.min(1, (double) SchedulerAnimation.WIDTH / Math.max(history.size(), 1));
+            double max = Math.min(MAX_SCALE, Integer.MAX_VALUE / 2.0 / Math.max(history.size(), 1));
+            scale = Math.max(min, Math.min(max, scale * factor));
+            revalidate();
+            Rectangle visible = getVisibleRect();
+            visible.x = (int) (time * scale) - (x - visible.x);
+            scrollRectToVisible(visible);
+            repaint();
         }
 
         /**
-         * The run[] array stores the processes scheduled for the CPU.
-         * The current process on the CPU is dictated by run[time].
+         * The next time after time that a different process (or none) holds the CPU,
+         * -1 if there is none
          */
-        public void update() {
-            run[SchedulerAnimation.time].width = 60; // this makes the process block visible
+        public int nextContextSwitch(int time) {
+            int run = runs.runAt(time) + 1;
+            return run < runs.size() ? runs.getStart(run) : -1;
+        }
 
+        /**
+         * Repaints what the animation drew since the time from
+         */
+        public void update(int from) {
+            int x = (int) (runs.getStart(runs.runAt(from)) * scale);
+            repaint(x, 0, (int) Math.ceil((time + 1) * scale) - x + 1, getHeight());
+        }
+
+        /**
+         * Scrolls so that time is in view, if it is not
+         */
+        public void scrollToTime(int time) {
+            Rectangle visible = getVisibleRect();
+            int x = (int) (time * scale);
+            if (x < visible.x || x >= visible.x + visible.width) {
+                visible.x = Math.max(x - visible.width / 2, 0);
+                scrollRectToVisible(visible);
+            }
         }
 
         /**
-         * Draw our timeline. At each time unit, draw the appropriate blocks.
+         * Draws the runs up to the current time that are inside the clip. Where several
+         * runs fall in one pixel, only the first is drawn, so the cost depends on the
+         * width of the window and not on the length of the run.
          */
         @Override
         public void paintComponent(Graphics g) {
             Graphics2D g2d = (Graphics2D) g;
             super.paintComponent(g2d);
-            // Drawing the timeline
-            for (int i = 0; i <= width; i += 60) {
-                g2d.drawLine(i, y1, i, y1 + 50);
+            Rectangle clip = g2d.getClipBounds();
+            if (clip == null) {
+                clip = getVisibleRect();
             }
-            g2d.drawLine(0, y1 + 50 / 2, width, y1 + 50 / 2);
-            // drawing the process blocks
-            for (int i = 0; i <= SchedulerAnimation.time; i++) {
-                run[i].draw(g2d);
+            int first = Math.max((int) (clip.x / scale), 0);
+            int last = Math.min((int) ((clip.x + clip.width) / scale), history.size() - 1);
+            // Drawing the timeline, with a line at every "nice" number of time units
+            // at least 60 pixels apart
+            int step = gridStep();
+            for (int t = first - first % step; t <= last + step; t += step) {
+                int x = (int) (t * scale);
+                g2d.drawLine(x, Y, x, Y + BLOCK_HEIGHT);
+                g2d.drawString(Integer.toString(t), x + 2, Y + BLOCK_HEIGHT + 20);
+            }
+            g2d.drawLine(clip.x, Y + BLOCK_HEIGHT / 2, clip.x + clip.width, Y + BLOCK_HEIGHT / 2);
+            // Drawing the runs
+            last = Math.min(last, time);
+            if (first > last) {
+                return;
+            }
+            g2d.setFont(new Font("Serif", Font.BOLD, 20));
+            int drawn = 0; // pixels before it are drawn
+            int run = runs.runAt(first);
+            while (run < runs.size() && runs.getStart(run) <= last) {
+                int end = Math.min(runs.getEnd(run), time + 1);
+                int x1 = Math.max((int) (runs.getStart(run) * scale), drawn);
+                drawn = Math.max((int) (end * scale), x1 + 1);
+                drawRun(g2d, run, x1, drawn - x1, end - runs.getStart(run));
+                // Skip whatever else falls in the pixels drawn
+                run = Math.max(runs.runAt((int) Math.ceil(drawn / scale)), run + 1);
             }
         }
 
+        private void drawRun(Graphics2D g2d, int run, int x, int width, int length) {
+            int PID = runs.getPID(run);
+            g2d.setColor(PID == -1 ? Color.GRAY : colorOf(PID));
+            g2d.fillRect(x, Y, width, BLOCK_HEIGHT);
+            if (width < 45) {
+                return; // no room for the labels
+            }
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(PID == -1 ? "IDLE" : "P" + PID, x + 5, Y + 20);
+            g2d.drawString(Integer.toString(length), x + 5, Y + 40);
+        }
+
+        /**
+         * 1, 2 or 5 times a power of 10
+         */
+        private int gridStep() {
+            int step = 1;
+            while (step * scale < 60) {
+                if (Integer.toString(step).charAt(0) == '2') {
+                    step = step / 2 * 5;
+                }
+                else step *= 2;
+            }
+            return step;
+        }
+
     }
 
     class QueueDisplay extends JPanel {
@@ -281,13 +545,13 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
                 count++;
             }
 
-            Process[] table = history.get(0).getTable();
+            Process[] table = history.getState(0).getTable();
             processes = new ProcessBlock[table.length];
             // Effectively hidden at the beginning
             int startX = -200;
             int startY = -200;
             for (int i = 0; i < table.length; i++) {
-                processes[i] = new ProcessBlock(startX, startY, i, 0, COLORS[i]);
+                processes[i] = new ProcessBlock(startX, startY, i, 0, colorOf(i));
             }
         }
 
@@ -298,14 +562,14 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
             int startX = 125;
             int width = 50;
             // Get the state of the ready queue(s)
-            ArrayList<PriorityQueue<Process>> queues = history.get(SchedulerAnimation.time).getReadyQueue();
+            ArrayList<PriorityQueue<Process>> queues = history.getState(time).getReadyQueue();
             // Set all processes to invisible
             for (int i = 0; i < processes.length; i++) {
                 processes[i].setInvisible();
             }
             int size = 1;
             // Only MLFQ has multiple ready queues.
-            if (SchedulerAnimation.strategy instanceof SimpleMLFQ) {
+            if (strategy instanceof SimpleMLFQ) {
                 size = queues.size();
             }
             // Iterate through each queue
@@ -326,7 +590,7 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
                 }
             }
             // Do the same thing for blocked list
-            ArrayList<Process> blocked = history.get(SchedulerAnimation.time).getBlockedList();
+            ArrayList<Process> blocked = history.getState(time).getBlockedList();
             for (int i = 0; i < blocked.size(); i++) {
                 Process curr = blocked.get(i);
                 int PID = curr.getPID();
@@ -340,7 +604,7 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
 
         @Override
         public void paintComponent(Graphics g) {
-            int[] quantums = history.get(SchedulerAnimation.time).getQuantums();
+            int[] quantums = history.getState(time).getQuantums();
             super.paintComponent(g);
             for (int i = 1; i < yLocations.length; i++) {
                 g.drawString("Ready Queue " + i + ": ", 20, 20 + yLocations[i]);
@@ -353,6 +617,125 @@ public class SchedulerAnimation extends JFrame implements KeyListener {
         }
     }
 
+    /**
+     * The whole run at once: which processes were running, ready or blocked over time,
+     * and how long each queue was, drawn from a HistoryHeatmap. Rows of processes and
+     * columns of time units are at most a pixel, so drawing costs the same for any
+     * number of processes or length of run. The heatmap is built the first time it
+     * is shown.
+     */
+    class HeatmapDisplay extends JPanel {
+
+        static final int LEFT = 170; // room for the labels
+        static final int TOP = 24;
+        static final int RIGHT = 10;
+        static final int SPARKLINE_HEIGHT = 28;
+        final Color[] STATE_COLORS = {
+                new Color(40, 160, 70), new Color(240, 180, 40), new Color(200, 60, 60)};
+        final String[] STATE_NAMES = {"Running", "Ready", "Blocked"};
+
+        int numProcesses;
+        HistoryHeatmap aggregate;
+        BufferedImage image; // a pixel per cell
+        int[] longest; // of each queue over the whole run
+        int height; // of the heatmap, whose rows are stretched to fill it
+
+        public HeatmapDisplay() {
+            numProcesses = history.getState(0).getTable().length;
+            setPreferredSize(new Dimension(SchedulerAnimation.WIDTH, 400));
+        }
+
+        private void build() {
+            int numQueues = strategy.getNumStrategies();
+            height = Math.max(getHeight() - TOP - (numQueues + 1) * SPARKLINE_HEIGHT - 20, 50);
+            aggregate = new HistoryHeatmap(history, numProcesses, numQueues,
+                    height, Math.max(getWidth() - LEFT - RIGHT, 50));
+            image = new BufferedImage(aggregate.getColumns(), aggregate.getRows(),
+                    BufferedImage.TYPE_INT_RGB);
+            for (int row = 0; row < aggregate.getRows(); row++) {
+                for (int column = 0; column < aggregate.getColumns(); column++) {
+                    // Blend the colors of the states by how much of the cell they fill
+                    double red = 0, green = 0, blue = 0, rest = 1;
+                    for (int state = 0; state < HistoryHeatmap.NUM_STATES; state++) {
+                        double fraction = aggregate.getFraction(state, row, column);
+                        red += fraction * STATE_COLORS[state].getRed();
+                        green += fraction * STATE_COLORS[state].getGreen();
+                        blue += fraction * STATE_COLORS[state].getBlue();
+                        rest -= fraction;
+                    }
+                    rest = Math.max(rest, 0) * 255; // white where no process is around
+                    image.setRGB(column, row, new Color((int) Math.min(red + rest, 255),
+                            (int) Math.min(green + rest, 255), (int) Math.min(blue + rest, 255)).getRGB());
+                }
+            }
+            longest = new int[numQueues + 1];
+            for (int q = 0; q <= numQueues; q++) {
+                for (int column = 0; column < aggregate.getColumns(); column++) {
+                    longest[q] = Math.max(longest[q], aggregate.getQueueLength(q, column));
+                }
+            }
+        }
+
+        @Override
+        public void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (aggregate == null) {
+                build();
+            }
+            int width = aggregate.getColumns();
+            g.drawImage(image, LEFT, TOP, width, height, null);
+            g.setColor(Color.BLACK);
+            g.drawRect(LEFT - 1, TOP - 1, width + 1, height + 1);
+            g.drawString("P0", LEFT - 40, TOP + 12);
+            g.drawString("P" + (numProcesses - 1), LEFT - 60, TOP + height);
+            g.drawString("A cell: " + aggregate.getPIDsPerRow() + " process(es), " +
+                    aggregate.getTimeUnitsPerColumn() + " time unit(s)", LEFT + STATE_NAMES.length * 100, 17);
+            // Legend
+            for (int state = 0; state < STATE_NAMES.length; state++) {
+                g.setColor(STATE_COLORS[state]);
+                g.fillRect(LEFT + state * 100, 6, 12, 12);
+                g.setColor(Color.BLACK);
+                g.drawString(STATE_NAMES[state], LEFT + state * 100 + 16, 17);
+            }
+            // Sparklines, the blocked list first as in the queues
+            int y = TOP + height + 10;
+            int numQueues = longest.length - 1;
+            for (int i = 0; i <= numQueues; i++) {
+                int q = i == 0 ? numQueues : i - 1;
+                g.setColor(Color.BLACK);
+                g.drawString((q == numQueues ? "Blocked List" : "Ready Queue " + i) +
+                        " (max " + longest[q] + ")", 10, y + SPARKLINE_HEIGHT - 8);
+                g.setColor(Color.DARK_GRAY);
+                int scale = Math.max(longest[q], 1);
+                int previous = y + SPARKLINE_HEIGHT - 4;
+                for (int column = 0; column < width; column++) {
+                    int top = y + SPARKLINE_HEIGHT - 4 -
+                            aggregate.getQueueLength(q, column) * (SPARKLINE_HEIGHT - 6) / scale;
+                    g.drawLine(LEFT + column, previous, LEFT + column, top);
+                    previous = top;
+                }
+                y += SPARKLINE_HEIGHT;
+            }
+            // Where the animation is
+            int x = LEFT + (int) ((long) time * width / aggregate.getNumTimeUnits());
+            g.setColor(Color.BLACK);
+            g.drawLine(x, TOP - 4, x, y);
+        }
+    }
+
+    /**
+     * A color for any PID. Past COLORS, the hues go round the color wheel by the
+     * golden ratio, so close PIDs never get close colors.
+     */
+    static Color colorOf(int PID) {
+        if (PID < COLORS.length) {
+            return COLORS[PID];
+        }
+        float hue = (float) ((PID * 0.6180339887498949) % 1);
+        float brightness = PID % 2 == 0 ? 0.95f : 0.75f;
+        return Color.getHSBColor(hue, 0.7f, brightness);
+    }
+
     class ProcessBlock {
 
         Color color;
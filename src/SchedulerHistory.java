@@ -0,0 +1,312 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A compact record of everything the scheduler did. Instead of a full copy of the
+ * scheduler at every time unit, only the events that change it are stored, plus a
+ * full keyframe every keyframeInterval time units. The state at any time is rebuilt
+ * from the nearest keyframe before it by replaying the events in between; everything
+ * else (bursts counting down, the CPU sitting idle) follows from the rules of work().
+ */
+public class SchedulerHistory {
+
+    // Event types
+    public static final int ARRIVE = 0; // value: priority on arrival
+    public static final int DISPATCH = 1;
+    public static final int PREEMPT = 2;
+    public static final int BLOCK = 3;
+    public static final int UNBLOCK = 4;
+    public static final int COMPLETE = 5;
+    public static final int PRIORITY = 6; // value: new priority (MLFQ promote/demote)
+    public static final int QUANTUM = 7; // value: new quantum (DQRR), no PID
+    public static final int TIMER = 8; // a time unit starts, only reported to event sinks
+
+    static final int DEFAULT_KEYFRAME_INTERVAL = 1000;
+
+    private int keyframeInterval;
+    private ArrayList<Scheduler.SchedulerState> keyframes;
+
+    // Events in the order they happened, as parallel arrays
+    private int[] times;
+    private int[] types;
+    private int[] PIDs;
+    private int[] values;
+    private int numEvents;
+
+    private int lastTime; // last time unit recorded
+
+    // The state last rebuilt. Moving forward from it is cheaper than starting over.
+    private Scheduler.SchedulerState cursor;
+    private int cursorEvent; // first event not yet applied to cursor
+
+    public SchedulerHistory() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param keyframeInterval: how many time units apart full snapshots are taken
+     */
+    public SchedulerHistory(int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+        clear();
+    }
+
+    public void clear() {
+        keyframes = new ArrayList<>();
+        times = new int[1024];
+        types = new int[1024];
+        PIDs = new int[1024];
+        values = new int[1024];
+        numEvents = 0;
+        lastTime = -1;
+        cursor = null;
+    }
+
+    public void addEvent(int time, int type, int PID, int value) {
+        if (numEvents == times.length) {
+            int length = times.length * 2;
+            times = Arrays.copyOf(times, length);
+            types = Arrays.copyOf(types, length);
+            PIDs = Arrays.copyOf(PIDs, length);
+            values = Arrays.copyOf(values, length);
+        }
+        times[numEvents] = time;
+        types[numEvents] = type;
+        PIDs[numEvents] = PID;
+        values[numEvents] = value;
+        numEvents++;
+    }
+
+    /**
+     * Called at the end of every time unit the scheduler worked on. Takes a keyframe
+     * if the last one is far enough behind.
+     */
+    public void record(Scheduler scheduler) {
+        int time = scheduler.getTimer();
+        if (keyframes.isEmpty() ||
+                time >= keyframes.get(keyframes.size() - 1).getTimer() + keyframeInterval) {
+            keyframes.add(new Scheduler.SchedulerState(scheduler));
+        }
+        lastTime = time;
+    }
+
+    /**
+     * Takes the keyframes of a history whose events were added without them, e.g.
+     * read back from an EventTrace, by replaying the events
+     * @param initial: the state before time 0
+     * @param lastTime: the last time unit the scheduler worked on
+     */
+    public void replay(Scheduler.SchedulerState initial, int lastTime) {
+        keyframes.clear();
+        keyframes.add(initial);
+        cursor = null;
+        this.lastTime = lastTime;
+        for (int time = keyframeInterval; time <= lastTime; time += keyframeInterval) {
+            keyframes.add(new Scheduler.SchedulerState(getState(time)));
+        }
+    }
+
+    /**
+     * How many time units can be rebuilt: times 0 to size() - 1
+     */
+    public int size() {
+        return lastTime + 1;
+    }
+
+    public boolean isEmpty() {
+        return keyframes.isEmpty();
+    }
+
+    // The recorded events, in the order they happened
+
+    public int getNumEvents() {
+        return numEvents;
+    }
+
+    public int getEventTime(int event) {
+        return times[event];
+    }
+
+    public int getEventType(int event) {
+        return types[event];
+    }
+
+    public int getEventPID(int event) {
+        return PIDs[event];
+    }
+
+    public int getEventValue(int event) {
+        return values[event];
+    }
+
+    /**
+     * Rebuilds the state of the scheduler at the end of the given time unit. The
+     * returned state is reused by the next call, so copy anything that must outlive it.
+     * Waiting times are not replayed and are as of the nearest keyframe.
+     */
+    public synchronized Scheduler.SchedulerState getState(int time) {
+        Scheduler.SchedulerState keyframe = keyframes.get(floorKeyframe(time));
+        if (cursor == null || cursor.getTimer() > time || cursor.getTimer() < keyframe.getTimer()) {
+            cursor = new Scheduler.SchedulerState(keyframe);
+            cursorEvent = firstEventAfter(keyframe.getTimer());
+        }
+        while (cursorEvent < numEvents && times[cursorEvent] <= time) {
+            int eventTime = times[cursorEvent];
+            cursor.elapse(eventTime - 1 - cursor.getTimer()); // nothing happened in between
+            cursor.startTimeUnit(eventTime);
+            boolean dispatched = false;
+            while (cursorEvent < numEvents && times[cursorEvent] == eventTime) {
+                cursor.apply(types[cursorEvent], PIDs[cursorEvent], values[cursorEvent]);
+                dispatched |= types[cursorEvent] == DISPATCH;
+                cursorEvent++;
+            }
+            cursor.endTimeUnit(dispatched);
+        }
+        cursor.elapse(time - cursor.getTimer());
+        return cursor;
+    }
+
+    /**
+     * The first time unit after time in which something happened, -1 if none did
+     */
+    public synchronized int nextEventTime(int time) {
+        int i = firstEventAfter(time);
+        return i < numEvents ? times[i] : -1;
+    }
+
+    /**
+     * The last time unit before time in which something happened, -1 if none did
+     */
+    public synchronized int previousEventTime(int time) {
+        int i = firstEventAfter(time - 1) - 1;
+        return i >= 0 ? times[i] : -1;
+    }
+
+    /**
+     * Who was on the CPU over the whole history, found from the events alone
+     */
+    public synchronized CPURuns getCPURuns() {
+        CPURuns runs = new CPURuns();
+        for (int i = 0; i < numEvents; i++) {
+            switch (types[i]) {
+                case DISPATCH:
+                    runs.add(times[i], PIDs[i]);
+                    break;
+                case PREEMPT:
+                case BLOCK:
+                case COMPLETE:
+                    runs.add(times[i], -1);
+                    break;
+            }
+        }
+        runs.end = size();
+        return runs;
+    }
+
+    /**
+     * What was on the CPU, run-length encoded: one entry per stretch of time units at
+     * the end of which the same process (or nothing) held the CPU, in the order they
+     * happened. A process preempted and dispatched again in the same time unit stays
+     * in one run.
+     */
+    public static class CPURuns {
+
+        private int[] starts; // first time unit of each run
+        private int[] PIDs; // -1 for idle
+        private int size;
+        private int end; // time unit after the last run
+
+        CPURuns() {
+            starts = new int[] {0};
+            PIDs = new int[] {-1};
+            size = 1;
+        }
+
+        /**
+         * The CPU holds PID from time on
+         */
+        void add(int time, int PID) {
+            if (starts[size - 1] == time) {
+                size--; // replaced within the time unit it started
+            }
+            if (size > 0 && PIDs[size - 1] == PID) {
+                return;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                PIDs = Arrays.copyOf(PIDs, size * 2);
+            }
+            starts[size] = time;
+            PIDs[size] = PID;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getStart(int run) {
+            return starts[run];
+        }
+
+        /**
+         * The time unit after the run
+         */
+        public int getEnd(int run) {
+            return run + 1 < size ? starts[run + 1] : end;
+        }
+
+        public int getPID(int run) {
+            return PIDs[run];
+        }
+
+        /**
+         * The run time falls in, in O(log n)
+         */
+        public int runAt(int time) {
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (starts[mid] <= time) {
+                    low = mid;
+                }
+                else high = mid - 1;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Index of the last keyframe taken at or before time
+     */
+    private int floorKeyframe(int time) {
+        int low = 0;
+        int high = keyframes.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (keyframes.get(mid).getTimer() <= time) {
+                low = mid;
+            }
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first event that happened after time
+     */
+    private int firstEventAfter(int time) {
+        int low = 0;
+        int high = numEvents;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time) {
+                low = mid + 1;
+            }
+            else high = mid;
+        }
+        return low;
+    }
+
+}
@@ -11,48 +11,42 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
     private int maxWait; // how long a process must wait before being promoted
     private boolean resetOnBlock; // do we reset process's CPU time when it enters I/O?
 
-    private int[] currentWaitTime; // how long each process has waited
-    private int[] currentRunTime; // how long each process has ran
-
     /**
      * Default SimpleMLFQ uses three round robin queues
      * Lowest level obeys a RR with a quantum of 5s
      * Middle level obeys a RR with a quantum of 5s, and max runtime of 20s
      * Highest level obeys a RR with a quantum of 5s, and max runtime of 15s
-     * If a process has not run for 100s, it will be promoted a level
+     * If a process has waited 100s since it became ready, it will be promoted to the top
      * If a process enters I/O, we do not reset its runtime
      */
 
-    public SimpleMLFQ(int numProcesses) {
-        this(new int[numProcesses], new int[numProcesses]);
-    }
-
-    public SimpleMLFQ(int[] currentWaitTime, int[] currentRunTime) {
+    public SimpleMLFQ() {
         this(3, new int[] {5, 5, 5}, new int[] {-1, 20, 15},
-                100, false, currentWaitTime, currentRunTime);
+                100, false);
     }
 
     /**
      * @param levels: how many levels in your MLFQ
      * @param quantums: specify the quantum time of each round robin queue
      * @param demoteQuantums: specify demote quantums {lowest queue (must be -1), ... highest queue}
-     * @param maxWait: length before a process is promoted to the top
+     * @param maxWait: how long a ready process waits before it is promoted to the top
      * @param resetOnBlock: false to prevent "cheating", otherwise can be true
+     * How long each process has run at its level is kept in its slot (see
+     * Process.getLevelRuntime()), so it follows the process between CPUs.
      */
     public SimpleMLFQ(int levels, int[] quantums, int[] demoteQuantums,
-                int maxWait, boolean resetOnBlock, int[] currentWaitTime, int[] currentRunTime) {
+                int maxWait, boolean resetOnBlock) {
         super("Multi-level Feedback Queue", levels);
         this.levels = levels;
         strategies = new AbstractStrategy[levels];
         for (int i = 0; i < levels; i++) {
             strategies[i] = new RoundRobin(quantums[i]);
+            strategies[i].setBlockedProcesses(getBlockedProcesses());
         }
         this.quantums = quantums;
         this.demoteQuantums = demoteQuantums;
         this.maxWait = maxWait;
         this.resetOnBlock = resetOnBlock;
-        this.currentWaitTime = currentWaitTime;
-        this.currentRunTime = currentRunTime;
     }
 
     @Override
@@ -68,6 +62,11 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
         strategies[p].ready(process, time);
     }
 
+    @Override
+    public void migrated(Process process) {
+        strategies[process.getPriority()].migrated(process);
+    }
+
     @Override
     public void blocked(Scheduler scheduler) {
         Process CPU = scheduler.getCPU();
@@ -91,7 +90,7 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
         int p = CPU.getPriority();
         // Check if any processes are in the higher queues
         for (int i = levels - 1; i > p; i--) {
-            PriorityQueue<Process> curr = strategies[i].getReadyQueue();
+            ReadyQueue curr = strategies[i].getReadyQueue();
             if (!curr.isEmpty()) {
                 return true;
             }
@@ -110,39 +109,67 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
         return null;
     }
 
+    /**
+     * Promotes the processes that have waited maxWait since they became ready. Each
+     * lower level is ordered by ready time, so they are at the heads of the levels
+     * and only they are looked at.
+     */
     @Override
-    public void progressBlocked(int time) {
-        Iterator<Process> itr = blockedProcesses.iterator();
-        while (itr.hasNext()) {
-            Process curr = itr.next();
-            curr.decrementBurst(); // Perform I/O
-            if (curr.getCurrentBurst() == 0) {
-                // If we finished I/O
-                itr.remove(); //
-                ready(curr, time); // move to ready
+    public void progressReady(int time) {
+        for (int i = 0; i < levels - 1; i++) {
+            ReadyQueue ready = strategies[i].getReadyQueue();
+            while (!ready.isEmpty() && promotionTime(ready.peek()) <= time) {
+                Process curr = ready.poll();
+                promoteToTop(curr); // set it to top
+                curr.incrementWaitingTime(time - curr.getReadyTime()); // wait so far
+                curr.setReadyTime(time);
+                getEventSink().event(time, SchedulerHistory.PRIORITY, curr.getPID(), curr.getPriority());
+                strategies[curr.getPriority()].getReadyQueue().add(curr); // add to appropriate queue
             }
         }
     }
 
+    /**
+     * When a waiting process is promoted if it is still waiting
+     */
+    private int promotionTime(Process process) {
+        return process.getReadyTime() + maxWait;
+    }
+
     @Override
-    public void progressReady(int time) {
-        for (int i = 0; i < levels; i++) {
-            Iterator<Process> itr = strategies[i].getReadyQueue().iterator();
-            while (itr.hasNext()) {
-                Process curr = itr.next();
-                curr.incrementWaitingTime();
-                int pid = curr.getPID();
-                currentWaitTime[pid]++;
-                if (currentWaitTime[pid] >= maxWait &&
-                        curr.getPriority() < levels - 1) { // if our process waited long enough
-                    // promote
-                    currentWaitTime[pid] = 0; // reset its wait time
-                    promoteToTop(curr); // set it to top
-                    curr.setReadyTime(time);
-                    strategies[curr.getPriority()].getReadyQueue().add(curr); // add to appropriate queue
-                    itr.remove(); // remove from current queue
+    public int nextEventTime(Scheduler scheduler) {
+        int last = scheduler.getTimer() - 1; // the time unit that just ran
+        int next = Integer.MAX_VALUE;
+        // When the next waiting process gets promoted
+        for (int i = 0; i < levels - 1; i++) {
+            Process first = strategies[i].getReadyQueue().peek();
+            if (first != null) {
+                next = Math.min(next, Math.max(promotionTime(first), scheduler.getTimer()));
+            }
+        }
+        Process CPU = scheduler.getCPU();
+        if (CPU != null) {
+            int p = CPU.getPriority();
+            for (int i = levels - 1; i > p; i--) {
+                if (!strategies[i].getReadyQueue().isEmpty()) {
+                    return scheduler.getTimer();
                 }
             }
+            // When the running process gets demoted
+            if (p > 0) {
+                next = Math.min(next, last + Math.max(demoteQuantums[p] - getProcessRunTime(CPU), 1));
+            }
+            // When the running process uses up this level's quantum
+            next = Math.min(next, strategies[p].nextEventTime(scheduler));
+        }
+        return next;
+    }
+
+    @Override
+    public void setEventSink(EventSink events) {
+        super.setEventSink(events);
+        for (int i = 0; i < levels; i++) {
+            strategies[i].setEventSink(events);
         }
     }
 
@@ -162,24 +189,20 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
         return quantums;
     }
 
-    public int[] getCurrentRunTime() {
-        return currentRunTime;
+    public void incrementProcessRunTime(Process process) {
+        process.incrementLevelRuntime(1);
     }
 
-    public void incrementProcessRunTime(Process process) {
-        currentRunTime[process.getPID()]++;
+    public void incrementProcessRunTime(Process process, int time) {
+        process.incrementLevelRuntime(time);
     }
 
     public void resetProcessRunTime(Process process) {
-        currentRunTime[process.getPID()] = 0;
+        process.resetLevelRuntime();
     }
 
     public int getProcessRunTime(Process process) {
-        return currentRunTime[process.getPID()];
-    }
-
-    public void resetWaitTime(Process process) {
-        currentWaitTime[process.getPID()] = 0;
+        return process.getLevelRuntime();
     }
 
     public void promoteToTop(Process process) {
@@ -187,7 +210,7 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
     }
 
     @Override
-    public PriorityQueue<Process> getReadyQueue() {
+    public ReadyQueue getReadyQueue() {
         for (int i = strategies.length - 1; i >= 0; i--) {
             if (strategies[i].getReadyQueue() != null && !strategies[i].getReadyQueue().isEmpty()) {
                 return strategies[i].getReadyQueue();
@@ -196,10 +219,19 @@ public class SimpleMLFQ extends AbstractStrategy implements Strategy {
         return null;
     }
 
+    @Override
+    public int getNumReady() {
+        int result = 0;
+        for (int i = 0; i < levels; i++) {
+            result += strategies[i].getNumReady();
+        }
+        return result;
+    }
+
     public ArrayList<PriorityQueue<Process>> getReadyQueues() {
         ArrayList<PriorityQueue<Process>> result = new ArrayList<>();
         for (int i = 0; i < strategies.length; i++) {
-            PriorityQueue<Process> rdy = strategies[i].getReadyQueue();
+            ReadyQueue rdy = strategies[i].getReadyQueue();
             PriorityQueue<Process> add = new PriorityQueue<Process>(rdy.comparator());
             Iterator<Process> itr = rdy.iterator();
             while (itr.hasNext()) {
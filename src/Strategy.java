@@ -1,15 +1,8 @@
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.PriorityQueue;
-
 /**
  * Every Strategy must define these methods. Strategies will maintain its own ready queue
  */
 public interface Strategy {
 
-    // If using multiple Strategies, they all share the same list of blocked processes
-    ArrayList<Process> blockedProcesses = new ArrayList<>();
-
     /**
      * What happens when a process arrives?
      * 1. Add it to the ready queue
@@ -19,8 +12,8 @@ public interface Strategy {
     /**
      * What happens when a process becomes ready (unblocked)?
      * 1. Increment its tracker
-     * 2. Remove it from the blocked list
-     * 3. Add it to the ready list
+     * 2. Add it to the ready list
+     * (progressBlocked() has already taken it off the blocked processes)
      */
     void ready(Process process, int time);
 
@@ -28,7 +21,7 @@ public interface Strategy {
      * What happens when a process becomes blocked? Similar to preempt.
      * 1. Increment its tracker
      * 2. CPU is freed (CPU = null)
-     * 3. The process is added to the blocked list
+     * 3. The process is added to the blocked processes, with the time it blocked
      * 4. (optional) Reset the process's running time (for use in priority adjustment)
      */
     void blocked(Scheduler scheduler);
@@ -49,12 +42,13 @@ public interface Strategy {
 
     /**
      * What is the next process that runs? Depends on the strategy's implementation
-     * of the Comparator for the priority queue
+     * of the comparator for its ready queue
      */
     Process next();
 
     /**
-     * Make progress on the blocked processes
+     * Make progress on the blocked processes: those whose IO completes by time
+     * become ready
      */
     void progressBlocked(int time);
 
@@ -63,56 +57,107 @@ public interface Strategy {
      */
     void progressReady(int time);
 
+    /**
+     * Make progress on the blocked and ready processes over time units in which
+     * nothing happens but countdowns (used by the event-driven engine)
+     */
+    void skipTicks(int ticks);
 
-    PriorityQueue<Process> getReadyQueue();
+    /**
+     * When is the next time this strategy changes the scheduler's state on its own,
+     * e.g. a quantum expiring? It is fine to answer too early, but never too late.
+     * Integer.MAX_VALUE if never.
+     */
+    int nextEventTime(Scheduler scheduler);
 
-    static ArrayList<Process> getBlockedProcesses() {
-        return blockedProcesses;
-    }
 
-    class NullComparator implements Comparator<Process> {
+    ReadyQueue getReadyQueue();
+
+    /**
+     * How many processes are waiting in the ready queue(s)
+     */
+    int getNumReady();
+
+    /**
+     * What happens when a ready process is moved here from another CPU's ready queue?
+     * 1. Add it to the ready queue, as it was: it keeps its ready time and priority
+     * (the other strategy's next() has already taken it off its ready queue)
+     */
+    void migrated(Process process);
+
+    /**
+     * The blocked processes, ordered by when their IO completes
+     */
+    ReadyQueue getBlockedProcesses();
+
+    class NullComparator extends ReadyQueue.SlotComparator {
         @Override
-        public int compare(Process o1, Process o2) {
-            if (o1.getReadyTime() < o2.getReadyTime()) {
+        public int compare(ProcessTable ta, int a, ProcessTable tb, int b) {
+            if (ta.readyTime[a] < tb.readyTime[b]) {
                 return -1;
             }
-            if (o1.getReadyTime() > o2.getReadyTime()) {
+            if (ta.readyTime[a] > tb.readyTime[b]) {
                 return 1;
             }
             return 0;
         }
     }
 
-    class PriorityComparator implements Comparator<Process> {
+    /**
+     * Orders blocked processes by when their IO completes. Processes completing
+     * together become ready in the order they blocked.
+     */
+    class IOComparator extends ReadyQueue.SlotComparator {
+        @Override
+        public int compare(ProcessTable ta, int a, ProcessTable tb, int b) {
+            int completionA = ta.ioCompletionTime(a);
+            int completionB = tb.ioCompletionTime(b);
+            if (completionA < completionB) {
+                return -1;
+            }
+            if (completionA > completionB) {
+                return 1;
+            }
+            if (ta.blockedTime[a] < tb.blockedTime[b]) {
+                return -1;
+            }
+            if (ta.blockedTime[a] > tb.blockedTime[b]) {
+                return 1;
+            }
+            return Integer.compare(ta.PID[a], tb.PID[b]);
+        }
+    }
+
+    class PriorityComparator extends ReadyQueue.SlotComparator {
 
         @Override
-        public int compare(Process o1, Process o2) {
-            if (o1.getPriority() > o2.getPriority()) {
+        public int compare(ProcessTable ta, int a, ProcessTable tb, int b) {
+            if (ta.priority[a] > tb.priority[b]) {
                 return 1;
             }
-            if (o1.getPriority() < o2.getPriority()) {
+            if (ta.priority[a] < tb.priority[b]) {
+                return -1;
+            }
+            if (ta.readyTime[a] < tb.readyTime[b]) {
                 return -1;
             }
-            if (o1.getPriority() == o2.getPriority()) {
-                if (o1.getReadyTime() < o2.getReadyTime()) {
-                    return -1;
-                }
-                if (o1.getReadyTime() > o2.getReadyTime()) {
-                    return 1;
-                }
+            if (ta.readyTime[a] > tb.readyTime[b]) {
+                return 1;
             }
             return 0;
         }
     }
 
-    class BurstComparator implements Comparator<Process> {
+    class BurstComparator extends ReadyQueue.SlotComparator {
 
         @Override
-        public int compare(Process o1, Process o2) {
-            if (o1.getCurrentBurst() > o2.getCurrentBurst()) {
+        public int compare(ProcessTable ta, int a, ProcessTable tb, int b) {
+            int burstA = ta.currentBurst(a);
+            int burstB = tb.currentBurst(b);
+            if (burstA > burstB) {
                 return 1;
             }
-            if (o1.getCurrentBurst() < o2.getCurrentBurst()) {
+            if (burstA < burstB) {
                 return -1;
             }
             return 0;
@@ -3,14 +3,30 @@ import java.util.*;
 
 class TableCreation {
 
+	/**
+	 * Usage: java TableCreation number_of_processes table_type [-binary]
+	 * Writes number_of_processes_table_type.txt, or .bin in the binary format of
+	 * WorkloadFile with -binary
+	 */
 	public static void main(String[] args) throws IOException {
 		int number_of_processes = Integer.parseInt(args[0]);
 		String table_type = args[1];
-		String file_name = args[0]+"_"+args[1]+".txt"; 
-		PrintWriter writer = new PrintWriter(file_name, "UTF-8");
-		writer.println(number_of_processes);
-		Random random = new Random();
-		
+		boolean binary = args.length == 3 && args[2].equals("-binary");
+		String file_name = args[0]+"_"+args[1]+(binary ? ".bin" : ".txt");
+		Process[] table = createTable(number_of_processes, new Random());
+		if (binary) {
+			WorkloadFile.writeBinary(file_name, table);
+		}
+		else WorkloadFile.writeText(file_name, table);
+		System.out.println(number_of_processes + table_type);
+	}
+
+	/**
+	 * Random processes arriving in order, as written by main()
+	 */
+	public static Process[] createTable(int number_of_processes, Random random) {
+		Process[] table = new Process[number_of_processes];
+		ProcessTable processes = new ProcessTable(number_of_processes, number_of_processes * 5);
 		int process_arrival = 0;
 
 		for (int i = 0; i< number_of_processes; i++){
@@ -33,13 +49,9 @@ class TableCreation {
 			//if there is no 2nd block, no 3rd burst
 			burst[4] = (burst[3] == 0) ?  0 : 1+ random.nextInt(50);
 
-			writer.println(i +"\t"+process_arrival+"\t"+process_priority+"\t"+burst[0]+"\t"+burst[1]+"\t"+burst[2]+"\t"+burst[3]+"\t"+burst[4]);
-
+			table[i] = processes.add(i, process_arrival, process_priority, burst);
 		}
-
-		writer.close();
-		System.out.println(number_of_processes + table_type);
+		return table;
 	}
 
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,145 @@
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Parses a process table text file (see Scheduler.main() for the format) straight
+ * from a byte buffer: no lines or tokens are made into Strings, and the ints go
+ * into a ProcessTable as they are read. Each line after the first holds the PID,
+ * arrival time and priority, then any odd number of bursts, alternating CPU and IO
+ * and starting and ending with CPU. Numbers are separated by spaces or tabs.
+ */
+public class TableReader implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private InputStream in;
+    private String path;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private int line; // line being parsed, for errors
+
+    private int[] values; // the numbers on the line last parsed
+    private int numValues;
+
+    private int numProcesses;
+    private int numRead;
+
+    public TableReader(String path) throws IOException {
+        this.path = path;
+        in = new FileInputStream(path);
+        buffer = new byte[BUFFER_SIZE];
+        values = new int[16];
+        //first line is number of processes
+        if (!parseLine() || numValues != 1 || values[0] < 0) {
+            close();
+            throw new IOException(path + ": the first line must be the number of processes");
+        }
+        numProcesses = values[0];
+    }
+
+    /**
+     * How many processes the file holds, from its first line
+     */
+    public int getNumProcesses() {
+        return numProcesses;
+    }
+
+    /**
+     * Parses the next process into table
+     * @return the process added, null once every process has been read
+     */
+    public Process next(ProcessTable table) throws IOException {
+        if (numRead == numProcesses) {
+            return null;
+        }
+        if (!parseLine()) {
+            throw new EOFException(path + " ends after " + numRead + " of " + numProcesses + " processes");
+        }
+        if (numValues < 4 || (numValues - 3) % 2 == 0) {
+            throw new IOException(path + ", line " + line +
+                    ": expected PID, arrival time, priority and an odd number of bursts");
+        }
+        numRead++;
+        return table.add(values[0], values[1], values[2], values, 3, numValues);
+    }
+
+    /**
+     * Reads every process left into one table
+     */
+    public Process[] readAll() throws IOException {
+        // Every process has at least one burst. The table grows for the rest.
+        ProcessTable table = new ProcessTable(numProcesses - numRead, numProcesses - numRead);
+        while (numRead < numProcesses) {
+            next(table);
+        }
+        return table.getProcesses();
+    }
+
+    /**
+     * Parses the numbers of the next line that has any into values
+     * @return false at the end of the file
+     */
+    private boolean parseLine() throws IOException {
+        numValues = 0;
+        int c = read();
+        while (numValues == 0) {
+            line++;
+            while (c != '\n' && c != -1) {
+                if (c == ' ' || c == '\t' || c == '\r') {
+                    c = read();
+                    continue;
+                }
+                boolean negative = c == '-';
+                if (negative) {
+                    c = read();
+                }
+                if (c < '0' || c > '9') {
+                    throw new IOException(path + ", line " + line + ": unexpected '" + (char) c + "'");
+                }
+                int value = 0;
+                while (c >= '0' && c <= '9') {
+                    int digit = c - '0';
+                    if (value > (Integer.MAX_VALUE - digit) / 10) {
+                        throw new IOException(path + ", line " + line + ": number too big, the most is " +
+                                Integer.MAX_VALUE);
+                    }
+                    value = value * 10 + digit;
+                    c = read();
+                }
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != -1) {
+                    throw new IOException(path + ", line " + line + ": unexpected '" + (char) c + "'");
+                }
+                if (numValues == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                values[numValues++] = negative ? -value : value;
+            }
+            if (c == -1) {
+                return numValues > 0;
+            }
+            if (numValues == 0) {
+                c = read(); // blank line
+            }
+        }
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
@@ -0,0 +1,178 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Process tables in a binary format that loads much faster than the text one: the
+ * file is memory-mapped and each record's ints are copied into a ProcessTable in
+ * bulk, with no parsing. Every int is little-endian. The header is
+ *   MAGIC, VERSION, number of processes, max bursts per process
+ * followed by one fixed-size record per process:
+ *   PID, arrival time, priority, number of bursts, bursts (padded with 0 to the max)
+ * Also converts between the two formats.
+ */
+public class WorkloadFile {
+
+    static final int MAGIC = 0x4C4B5257; // "WRKL"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 4;
+    static final int RECORD_INTS = 4; // before the bursts
+
+    static final long MAX_REGION_BYTES = 1L << 30; // how much is mapped at a time
+
+    /**
+     * Usage: java WorkloadFile input output
+     * Writes the binary table input as text, or the text table input as binary.
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        if (isBinary(args[0])) {
+            writeText(args[1], read(args[0]));
+        }
+        else writeBinary(args[1], Scheduler.readTable(args[0]));
+    }
+
+    /**
+     * Does the file start like a binary process table?
+     */
+    public static boolean isBinary(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header);
+            return !header.hasRemaining() && header.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a binary process table, all processes in one ProcessTable
+     */
+    public static Process[] read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_INTS * 4) {
+                throw new EOFException(path + " is too short for a binary process table header");
+            }
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_INTS * 4)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (header.get() != MAGIC || header.get() != VERSION) {
+                throw new IOException(path + " is not a binary process table");
+            }
+            int numProcesses = header.get();
+            int maxBursts = header.get();
+            long recordBytes = 4L * (RECORD_INTS + (long) maxBursts);
+            // An empty table may have been written with no bursts per record
+            if (numProcesses < 0 || maxBursts < (numProcesses == 0 ? 0 : 1) || recordBytes > MAX_REGION_BYTES) {
+                throw new IOException(path + ": impossible header, " + numProcesses + " processes of up to " +
+                        maxBursts + " bursts");
+            }
+            if (channel.size() < HEADER_INTS * 4 + Math.multiplyExact(numProcesses, recordBytes)) {
+                throw new EOFException(path + " is too short for " + numProcesses + " processes");
+            }
+            int recordInts = RECORD_INTS + maxBursts;
+            // A mapping is limited to 2GB, so big files are mapped a region at a time
+            int perRegion = (int) (MAX_REGION_BYTES / recordBytes);
+            // Count the bursts first, so the table holds just those and not maxBursts
+            // for every process
+            long numBursts = 0;
+            for (int first = 0; first < numProcesses; first += perRegion) {
+                int count = Math.min(perRegion, numProcesses - first);
+                IntBuffer in = map(channel, first, count, recordBytes);
+                for (int i = 0; i < count; i++) {
+                    int bursts = in.get(i * recordInts + RECORD_INTS - 1);
+                    // CPU, IO, ..., CPU, as in the text format
+                    if (bursts < 1 || bursts > maxBursts || bursts % 2 == 0) {
+                        throw new IOException(path + ": process " + in.get(i * recordInts) + " has " +
+                                bursts + " bursts, expected an odd number up to " + maxBursts);
+                    }
+                    numBursts += bursts;
+                }
+            }
+            if (numBursts > Integer.MAX_VALUE - 8) {
+                throw new IOException(path + " has too many bursts to load at once: " + numBursts);
+            }
+            ProcessTable processes = new ProcessTable(numProcesses, (int) numBursts);
+            for (int first = 0; first < numProcesses; first += perRegion) {
+                int count = Math.min(perRegion, numProcesses - first);
+                IntBuffer in = map(channel, first, count, recordBytes);
+                for (int i = 0; i < count; i++) {
+                    int start = in.position();
+                    int pid = in.get();
+                    int arrival = in.get();
+                    int priority = in.get();
+                    int bursts = in.get();
+                    processes.add(pid, arrival, priority, in, bursts);
+                    in.position(start + recordInts);
+                }
+            }
+            return processes.getProcesses();
+        }
+    }
+
+    /**
+     * The records of count processes, from the first-th on
+     */
+    private static IntBuffer map(FileChannel channel, int first, int count, long recordBytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_INTS * 4 + first * recordBytes,
+                count * recordBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    public static void writeBinary(String path, Process[] table) throws IOException {
+        int maxBursts = 1; // even for an empty table, as read() expects
+        for (Process process : table) {
+            maxBursts = Math.max(maxBursts, process.getNumBursts());
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int recordBytes = Math.multiplyExact(4, RECORD_INTS + maxBursts);
+            // Room for at least the header and one record, however long
+            int capacity = Math.max(1 << 20, Math.addExact(HEADER_INTS * 4, recordBytes));
+            ByteBuffer out = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(table.length).putInt(maxBursts);
+            for (Process process : table) {
+                if (out.remaining() < recordBytes) {
+                    drain(channel, out);
+                }
+                out.putInt(process.getPID()).putInt(process.getArrivalTime()).putInt(process.getPriority());
+                out.putInt(process.getNumBursts());
+                for (int i = 0; i < maxBursts; i++) {
+                    out.putInt(i < process.getNumBursts() ? process.getBurst(i) : 0);
+                }
+            }
+            drain(channel, out);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Writes the text format read by Scheduler.readTable(), as TableCreation does
+     */
+    public static void writeText(String path, Process[] table) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(path), 1 << 16))) {
+            writer.println(table.length);
+            StringBuilder sb = new StringBuilder();
+            for (Process process : table) {
+                sb.setLength(0);
+                sb.append(process.getPID()).append('\t').append(process.getArrivalTime())
+                        .append('\t').append(process.getPriority());
+                for (int i = 0; i < process.getNumBursts(); i++) {
+                    sb.append('\t').append(process.getBurst(i));
+                }
+                writer.println(sb);
+            }
+            if (writer.checkError()) {
+                throw new IOException("Could not write " + path);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncEventSinkTest {
+
+    static final int NUM_EVENTS = 200000;
+
+    /**
+     * Keeps the times of the events it is given, slowly enough that the buffer fills
+     */
+    static class SlowSink implements EventSink {
+        List<Integer> times = new ArrayList<>();
+        boolean closed;
+
+        @Override
+        public void event(int time, int type, int PID, int value) {
+            times.add(time);
+            if (time % 1000 == 0) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void deliversEveryEventInOrder() {
+        SlowSink target = new SlowSink();
+        AsyncEventSink sink = new AsyncEventSink(target, 64, false);
+        for (int time = 0; time < NUM_EVENTS; time++) {
+            sink.event(time, SchedulerHistory.TIMER, -1, 0);
+        }
+        sink.close();
+        assertTrue(target.closed);
+        assertEquals(0, sink.getDropped());
+        assertEquals(NUM_EVENTS, target.times.size());
+        for (int time = 0; time < NUM_EVENTS; time++) {
+            assertEquals(time, (int) target.times.get(time));
+        }
+    }
+
+    /**
+     * What Scheduler.main uses for -log unless -log-drop is given
+     */
+    @Test
+    public void defaultDeliversEveryEvent() {
+        SlowSink target = new SlowSink();
+        AsyncEventSink sink = new AsyncEventSink(target);
+        for (int time = 0; time < NUM_EVENTS; time++) {
+            sink.event(time, SchedulerHistory.TIMER, -1, 0);
+        }
+        sink.close();
+        assertEquals(0, sink.getDropped());
+        assertEquals(NUM_EVENTS, target.times.size());
+    }
+
+    @Test
+    public void dropsOnlyWhenAskedTo() {
+        SlowSink target = new SlowSink();
+        AsyncEventSink sink = new AsyncEventSink(target, 64, true);
+        for (int time = 0; time < NUM_EVENTS; time++) {
+            sink.event(time, SchedulerHistory.TIMER, -1, 0);
+        }
+        sink.close();
+        assertTrue(sink.getDropped() > 0);
+        assertEquals(NUM_EVENTS, target.times.size() + sink.getDropped());
+        // What was kept is still in order
+        for (int i = 1; i < target.times.size(); i++) {
+            assertTrue(target.times.get(i - 1) < target.times.get(i));
+        }
+    }
+
+}
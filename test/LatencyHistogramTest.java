@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    // The most a percentile may be over the exact value, relative to it
+    static final double MAX_RELATIVE_ERROR = 2.0 / LatencyHistogram.SUB_BUCKETS;
+
+    /**
+     * The end of the bucket value falls in, as valueAtPercentile() reports it when
+     * the maximum is elsewhere
+     */
+    private static int bucketEnd(int value) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(value);
+        histogram.record(Integer.MAX_VALUE);
+        return histogram.valueAtPercentile(50);
+    }
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.valueAtPercentile(0));
+        assertEquals(0, histogram.valueAtPercentile(50));
+        assertEquals(0, histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (int value = 0; value < LatencyHistogram.SUB_BUCKETS; value++) {
+            assertEquals(value, bucketEnd(value));
+        }
+    }
+
+    @Test
+    public void powersOfTwoStartBuckets() {
+        for (int shift = LatencyHistogram.SUB_BUCKET_BITS; shift < 31; shift++) {
+            int power = 1 << shift;
+            // The bucket below ends just before the power of two
+            assertEquals(power - 1, bucketEnd(power - 1), "2^" + shift + " - 1");
+            int end = bucketEnd(power);
+            assertTrue(end >= power, "2^" + shift);
+            assertTrue(end - power <= power * MAX_RELATIVE_ERROR, "2^" + shift + " ends at " + end);
+            assertTrue(bucketEnd(power + 1) >= power + 1, "2^" + shift + " + 1");
+        }
+    }
+
+    @Test
+    public void bucketsAreOrderedAndNarrow() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(Integer.MAX_VALUE) >>> random.nextInt(31);
+            int end = bucketEnd(value);
+            assertTrue(end >= value, value + " ends at " + end);
+            assertTrue(end - value <= value * MAX_RELATIVE_ERROR, value + " ends at " + end);
+            assertTrue(bucketEnd(value + 1) >= end, "after " + value);
+        }
+    }
+
+    @Test
+    public void maxValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, histogram.getMax());
+        assertEquals(Integer.MAX_VALUE, histogram.valueAtPercentile(0));
+        assertEquals(Integer.MAX_VALUE, histogram.valueAtPercentile(100));
+        histogram.record(Integer.MAX_VALUE - 1);
+        assertEquals(Integer.MAX_VALUE, histogram.valueAtPercentile(50));
+    }
+
+    @Test
+    public void zeroAndHundredthPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1000; value >= 1; value--) {
+            histogram.record(value);
+        }
+        assertEquals(1, histogram.valueAtPercentile(0));
+        assertEquals(1000, histogram.valueAtPercentile(100));
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void negativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().record(-1));
+    }
+
+    /**
+     * Against the nearest-rank percentile of the sorted values
+     */
+    @Test
+    public void agreesWithSortedValues() {
+        Random random = new Random(2);
+        double[] percentiles = {0, 1, 10, 50, 90, 99, 99.9, 99.99, 100};
+        for (int run = 0; run < 50; run++) {
+            int count = 1 + random.nextInt(5000);
+            int[] values = new int[count];
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 0; i < count; i++) {
+                // Uniform at scales from tens to billions, or heavy-tailed
+                values[i] = run % 2 == 0 ?
+                        random.nextInt(10 << (run % 28)) :
+                        (int) Math.min(-Math.log(1 - random.nextDouble()) * 1000 * (run + 1), Integer.MAX_VALUE);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            for (double percentile : percentiles) {
+                int rank = Math.max((int) Math.ceil(percentile / 100 * count), 1);
+                int exact = values[rank - 1];
+                int value = histogram.valueAtPercentile(percentile);
+                assertTrue(value >= exact, "p" + percentile + " " + value + " < " + exact);
+                assertTrue(value - exact <= exact * MAX_RELATIVE_ERROR,
+                        "p" + percentile + " " + value + " vs " + exact);
+            }
+            assertEquals(values[count - 1], histogram.getMax());
+        }
+    }
+
+    @Test
+    public void addCombines() {
+        Random random = new Random(3);
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 10000; i++) {
+            int value = random.nextInt(100000);
+            all.record(value);
+            (i % 3 == 0 ? first : second).record(value);
+        }
+        first.add(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMax(), first.getMax());
+        assertEquals(all.getMean(), first.getMean(), 1e-9);
+        for (double percentile = 0; percentile <= 100; percentile += 0.5) {
+            assertEquals(all.valueAtPercentile(percentile), first.valueAtPercentile(percentile));
+        }
+    }
+
+}
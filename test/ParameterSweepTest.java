@@ -0,0 +1,50 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParameterSweepTest {
+
+    @Test
+    public void parsesIntegerRangesAndLists() {
+        assertEquals(Arrays.asList("1", "3", "5"), ParameterSweep.parseValues("1:5:2"));
+        assertEquals(Arrays.asList("4", "5", "6"), ParameterSweep.parseValues("4:6"));
+        assertEquals(Arrays.asList("5", "10/20"), ParameterSweep.parseValues("5,10/20"));
+    }
+
+    @Test
+    public void sweepsSmoothingOverADecimalRange() {
+        List<String> values = ParameterSweep.parseValues("0.1:1:0.1");
+        assertEquals(10, values.size());
+        assertEquals("0.3", values.get(2));
+        assertEquals(1.0, Double.parseDouble(values.get(9)));
+
+        HashMap<String, List<String>> grid = new HashMap<>();
+        grid.put("smoothing", values);
+        ParameterSweep.Config[] configs = ParameterSweep.DQRRConfigs(grid);
+        assertEquals(10, configs.length);
+        for (ParameterSweep.Config config : configs) {
+            assertNotNull(config.createStrategy(1));
+        }
+    }
+
+    @Test
+    public void rejectsDecimalsForWholeNumbers() {
+        HashMap<String, List<String>> grid = new HashMap<>();
+        grid.put("quantum", ParameterSweep.parseValues("0.5:2"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ParameterSweep.roundRobinConfigs(grid));
+        assertEquals("quantum must be a whole number: 0.5", e.getMessage());
+
+        grid.clear();
+        grid.put("quantum", Collections.singletonList("5/2.5"));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.MLFQConfigs(grid));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseValues("1:x"));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.parseValues("1:5:0"));
+    }
+
+}
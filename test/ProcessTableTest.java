@@ -0,0 +1,55 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessTableTest {
+
+    @Test
+    public void releasedSlotsAreReused() {
+        ProcessTable table = new ProcessTable(2, 2);
+        Process a = table.add(0, 0, 1, new int[] {3, 4, 5});
+        Process b = table.add(1, 2, 0, new int[] {6});
+        a.incrementTracker();
+        a.setCompleted();
+        table.release(a.getSlot());
+
+        // Fewer bursts than before fit where the old ones were
+        Process c = table.add(2, 7, 2, new int[] {8});
+        assertSame(a, c);
+        assertEquals(2, table.size());
+        assertEquals(2, c.getPID());
+        assertEquals(7, c.getArrivalTime());
+        assertEquals(0, c.getTracker());
+        assertFalse(c.isCompleted());
+        assertArrayEquals(new int[] {8}, c.getBursts());
+        assertArrayEquals(new int[] {6}, b.getBursts());
+
+        // More do not, and go after every other burst
+        table.release(b.getSlot());
+        Process d = table.add(3, 9, 1, new int[] {1, 2, 3, 4, 5});
+        assertSame(b, d);
+        assertArrayEquals(new int[] {1, 2, 3, 4, 5}, d.getBursts());
+        assertArrayEquals(new int[] {8}, c.getBursts());
+        assertEquals(2, table.size());
+
+        // New slots once none are free
+        Process e = table.add(4, 9, 1, new int[] {7});
+        assertEquals(2, e.getSlot());
+        assertArrayEquals(new int[] {7}, e.getBursts());
+    }
+
+    @Test
+    public void copyKeepsReleasedSlots() {
+        ProcessTable table = new ProcessTable(2, 2);
+        Process a = table.add(0, 0, 1, new int[] {3, 4, 5});
+        table.add(1, 2, 0, new int[] {6});
+        table.release(a.getSlot());
+        ProcessTable copy = table.copy();
+        Process b = copy.add(2, 1, 1, new int[] {9, 9, 9});
+        assertEquals(a.getSlot(), b.getSlot());
+        assertArrayEquals(new int[] {9, 9, 9}, b.getBursts());
+        assertArrayEquals(new int[] {6}, copy.getProcess(1).getBursts());
+        assertFalse(ProcessTable.isWhole(table.getProcesses()));
+    }
+
+}
@@ -0,0 +1,172 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks ReadyQueue against a PriorityQueue with the same order, under random
+ * offers, polls, removals (directly and through the iterator) and key updates
+ */
+public class ReadyQueueTest {
+
+    static final int NUM_PROCESSES = 200;
+    static final int NUM_OPERATIONS = 20000;
+
+    private Random random;
+    private Process[] processes;
+
+    /**
+     * Processes with few distinct ready times, priorities and bursts, so the
+     * comparators tie often
+     */
+    private void createProcesses(long seed) {
+        random = new Random(seed);
+        ProcessTable table = new ProcessTable(NUM_PROCESSES, NUM_PROCESSES);
+        processes = new Process[NUM_PROCESSES];
+        for (int PID = 0; PID < NUM_PROCESSES; PID++) {
+            processes[PID] = table.add(PID, random.nextInt(10), random.nextInt(3),
+                    new int[] {1 + random.nextInt(5)});
+        }
+    }
+
+    @Test
+    public void readyTimeOrder() {
+        compareWithPriorityQueue(new Strategy.NullComparator());
+    }
+
+    @Test
+    public void priorityOrder() {
+        compareWithPriorityQueue(new Strategy.PriorityComparator());
+    }
+
+    @Test
+    public void burstOrder() {
+        compareWithPriorityQueue(new Strategy.BurstComparator());
+    }
+
+    private void compareWithPriorityQueue(ReadyQueue.SlotComparator order) {
+        for (long seed = 0; seed < 5; seed++) {
+            createProcesses(seed);
+            ReadyQueue queue = new ReadyQueue(order);
+            PriorityQueue<Process> expected = new PriorityQueue<>(new ReadyQueue.StableComparator(order));
+            for (int i = 0; i < NUM_OPERATIONS; i++) {
+                Process process = processes[random.nextInt(NUM_PROCESSES)];
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        if (!expected.contains(process)) {
+                            assertTrue(queue.offer(process));
+                            expected.offer(process);
+                        }
+                        break;
+                    case 2:
+                        assertSame(expected.poll(), queue.poll());
+                        break;
+                    case 3:
+                        assertEquals(expected.remove(process), queue.remove(process));
+                        break;
+                    case 4:
+                        removeThroughIterator(queue, expected);
+                        break;
+                    case 5:
+                        changeKey(queue, expected, process);
+                        break;
+                }
+                assertEquals(expected.size(), queue.size());
+                assertSame(expected.peek(), queue.peek());
+            }
+            // What is left comes out in the same order
+            while (!expected.isEmpty()) {
+                assertSame(expected.poll(), queue.poll());
+            }
+            assertNull(queue.poll());
+        }
+    }
+
+    /**
+     * Iterates over the whole queue, removing some of what it returns
+     */
+    private void removeThroughIterator(ReadyQueue queue, PriorityQueue<Process> expected) {
+        int size = queue.size();
+        Set<Process> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Iterator<Process> itr = queue.iterator();
+        while (itr.hasNext()) {
+            Process process = itr.next();
+            assertTrue(seen.add(process), "returned twice: " + process);
+            if (random.nextInt(4) == 0) {
+                itr.remove();
+                assertTrue(expected.remove(process));
+                assertFalse(queue.contains(process));
+            }
+        }
+        assertEquals(size, seen.size());
+    }
+
+    /**
+     * Changes what the comparators look at, then moves the process with updateKey
+     */
+    private void changeKey(ReadyQueue queue, PriorityQueue<Process> expected, Process process) {
+        boolean queued = expected.remove(process);
+        process.setReadyTime(random.nextInt(10));
+        process.setPriority(random.nextInt(3));
+        if (process.getCurrentBurst() > 1) {
+            process.decrementBurst();
+        }
+        assertEquals(queued, queue.updateKey(process));
+        if (queued) {
+            expected.add(process);
+        }
+    }
+
+    @Test
+    public void tiesByReadyTimeThenPID() {
+        ProcessTable table = new ProcessTable(4, 4);
+        Process a = table.add(0, 0, 1, new int[] {5});
+        Process b = table.add(1, 0, 1, new int[] {5});
+        Process c = table.add(2, 0, 1, new int[] {5});
+        Process d = table.add(3, 0, 1, new int[] {5});
+        a.setReadyTime(7);
+        b.setReadyTime(3);
+        c.setReadyTime(3);
+        d.setReadyTime(1);
+        ReadyQueue queue = new ReadyQueue(new Strategy.BurstComparator());
+        queue.add(a);
+        queue.add(c);
+        queue.add(b);
+        queue.add(d);
+        assertSame(d, queue.poll());
+        assertSame(b, queue.poll());
+        assertSame(c, queue.poll());
+        assertSame(a, queue.poll());
+    }
+
+    @Test
+    public void removeWhatIsNotQueued() {
+        createProcesses(0);
+        ReadyQueue queue = new ReadyQueue(new Strategy.NullComparator());
+        ReadyQueue other = new ReadyQueue(new Strategy.NullComparator());
+        queue.add(processes[0]);
+        other.add(processes[1]);
+        assertFalse(queue.remove(processes[1]));
+        assertFalse(queue.remove("not a process"));
+        assertFalse(queue.updateKey(processes[1]));
+        assertEquals(1, queue.size());
+        assertEquals(1, other.size());
+    }
+
+    @Test
+    public void processesOfOneTable() {
+        createProcesses(0);
+        Process elsewhere = new ProcessTable(1, 1).add(NUM_PROCESSES, 0, 0, new int[] {1});
+        ReadyQueue queue = new ReadyQueue(new Strategy.NullComparator());
+        queue.add(processes[0]);
+        assertThrows(IllegalArgumentException.class, () -> queue.add(elsewhere));
+        assertFalse(queue.contains(elsewhere));
+        // Once empty, it takes another table
+        assertSame(processes[0], queue.poll());
+        queue.add(elsewhere);
+        assertSame(elsewhere, queue.peek());
+    }
+
+}
@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that SchedulerHistory rebuilds, from its keyframes and events, the same
+ * state as a full snapshot taken at the end of every time unit
+ */
+public class SchedulerHistoryTest {
+
+    static final int NUM_PROCESSES = 40;
+
+    /**
+     * What a state must agree on, apart from its time. Waiting times are left out:
+     * they are not replayed.
+     */
+    static String describe(Scheduler.SchedulerState state) {
+        StringBuilder sb = new StringBuilder();
+        Process[] table = state.getTable().clone();
+        Arrays.sort(table, Comparator.comparingInt(Process::getPID));
+        for (Process process : table) {
+            sb.append(' ').append(process.getPID()).append(':').append(process.getPriority())
+                    .append(Arrays.toString(process.getBursts())).append(process.getTracker());
+        }
+        Process CPU = state.getCPU();
+        sb.append(" CPU ").append(CPU == null ? "-" : CPU.getPID() + "/" + CPU.getCurrentRuntime());
+        for (PriorityQueue<Process> queue : state.getReadyQueue()) {
+            ArrayList<Integer> PIDs = new ArrayList<>();
+            for (Process process : queue) {
+                PIDs.add(process.getPID());
+            }
+            Collections.sort(PIDs);
+            sb.append(" ready ").append(PIDs);
+        }
+        sb.append(" blocked");
+        for (Process process : state.getBlockedList()) {
+            sb.append(' ').append(process.getPID());
+        }
+        sb.append(" switches ").append(state.getContextSwitch()).append(" idle ").append(state.getIdleTime())
+                .append(" quantums ").append(Arrays.toString(state.getQuantums()));
+        return sb.toString();
+    }
+
+    private static Scheduler newScheduler(String algorithm, long seed) {
+        Process[] table = TableCreation.createTable(NUM_PROCESSES, new Random(seed));
+        Scheduler scheduler = new Scheduler(Scheduler.createStrategy(algorithm, table.length, 0), table);
+        scheduler.setEventSink(EventSink.NONE);
+        return scheduler;
+    }
+
+    /**
+     * A full snapshot at the end of every time unit, from the tick engine. It is
+     * taken where the history records, before the timer moves on: blocked processes
+     * count their IO down from the timer.
+     */
+    private static Scheduler runTicks(String algorithm, long seed, List<String> snapshots) {
+        Process[] table = TableCreation.createTable(NUM_PROCESSES, new Random(seed));
+        Scheduler scheduler = new Scheduler(Scheduler.createStrategy(algorithm, table.length, 0), table) {
+            @Override
+            public void record() {
+                super.record();
+                snapshots.add(describe(new Scheduler.SchedulerState(this)));
+            }
+        };
+        scheduler.setEventSink(EventSink.NONE);
+        while (!scheduler.terminate()) {
+            scheduler.work();
+        }
+        return scheduler;
+    }
+
+    private static void checkState(String name, SchedulerHistory history, List<String> expected, int time) {
+        Scheduler.SchedulerState state = history.getState(time);
+        assertEquals(time, state.getTimer(), name + " time");
+        assertEquals(expected.get(time), describe(state), name + " at " + time);
+    }
+
+    private static void checkHistory(String name, SchedulerHistory history, List<String> expected) {
+        assertEquals(expected.size(), history.size(), name + " size");
+        // More than one keyframe, so rebuilding from a later one is covered too
+        assertTrue(history.size() > 2 * SchedulerHistory.DEFAULT_KEYFRAME_INTERVAL, name + " too short");
+
+        // Sequentially, moving the cursor forward
+        for (int time = 0; time < history.size(); time++) {
+            checkState(name, history, expected, time);
+        }
+        // Backwards, so every state is rebuilt from a keyframe
+        for (int time = history.size() - 1; time >= 0; time--) {
+            checkState(name + " backwards", history, expected, time);
+        }
+        // In random order, then around each keyframe and at the very end
+        ArrayList<Integer> times = new ArrayList<>();
+        for (int time = 0; time < history.size(); time++) {
+            times.add(time);
+        }
+        Collections.shuffle(times, new Random(name.hashCode()));
+        for (int keyframe = 0; keyframe < history.size(); keyframe += SchedulerHistory.DEFAULT_KEYFRAME_INTERVAL) {
+            Collections.addAll(times, keyframe, Math.max(keyframe - 1, 0), keyframe, keyframe + 1);
+        }
+        Collections.addAll(times, history.size() - 1, 0, history.size() - 1);
+        for (int time : times) {
+            if (time < history.size()) {
+                checkState(name, history, expected, time);
+            }
+        }
+    }
+
+    @Test
+    public void tickEngine() {
+        for (String algorithm : Scheduler.ALGORITHMS) {
+            for (long seed = 0; seed < 2; seed++) {
+                ArrayList<String> snapshots = new ArrayList<>();
+                Scheduler scheduler = runTicks(algorithm, seed, snapshots);
+                checkHistory(algorithm + " seed " + seed, scheduler.getHistory(), snapshots);
+            }
+        }
+    }
+
+    /**
+     * The event-driven engine skips time units, which the history must rebuild
+     */
+    @Test
+    public void eventDrivenEngine() {
+        for (String algorithm : Scheduler.ALGORITHMS) {
+            for (long seed = 0; seed < 2; seed++) {
+                ArrayList<String> snapshots = new ArrayList<>();
+                runTicks(algorithm, seed, snapshots);
+                Scheduler scheduler = newScheduler(algorithm, seed);
+                scheduler.setEventDriven(true);
+                scheduler.run();
+                checkHistory(algorithm + " seed " + seed + " event-driven", scheduler.getHistory(), snapshots);
+            }
+        }
+    }
+
+}
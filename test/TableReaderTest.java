@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Process[] read(String text) throws IOException {
+        Path path = dir.resolve("table.txt");
+        Files.write(path, text.getBytes(StandardCharsets.US_ASCII));
+        try (TableReader reader = new TableReader(path.toString())) {
+            return reader.readAll();
+        }
+    }
+
+    @Test
+    public void readsBurstsOfAnyOddCount() throws IOException {
+        Process[] table = read("3\n0 0 1 5\n1\t2\t0\t4 10 3\r\n\n2 7 2 1 2 3 4 2147483647\n");
+        assertEquals(3, table.length);
+        assertArrayEquals(new int[]{5}, table[0].getBursts());
+        assertEquals(2, table[1].getArrivalTime());
+        assertArrayEquals(new int[]{4, 10, 3}, table[1].getBursts());
+        assertArrayEquals(new int[]{1, 2, 3, 4, Integer.MAX_VALUE}, table[2].getBursts());
+    }
+
+    @Test
+    public void rejectsNumbersTooBig() {
+        IOException e = assertThrows(IOException.class, () -> read("2\n0 0 1 5\n1 2147483648 0 4\n"));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+        assertThrows(IOException.class, () -> read("1\n0 0 1 99999999999999999999\n"));
+    }
+
+    @Test
+    public void rejectsEvenBurstCounts() {
+        IOException e = assertThrows(IOException.class, () -> read("1\n0 0 1 5 3\n"));
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    @Test
+    public void rejectsNegativeProcessCount() {
+        assertThrows(IOException.class, () -> read("-1\n"));
+    }
+
+}
@@ -0,0 +1,76 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadFileTest {
+
+    @TempDir
+    Path dir;
+
+    private String write(Process[] table) throws IOException {
+        String path = dir.resolve("table.bin").toString();
+        WorkloadFile.writeBinary(path, table);
+        return path;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Process[] table = TableCreation.createTable(100, new Random(1));
+        Process[] read = WorkloadFile.read(write(table));
+        assertEquals(table.length, read.length);
+        for (int i = 0; i < table.length; i++) {
+            assertEquals(table[i].getPID(), read[i].getPID());
+            assertEquals(table[i].getArrivalTime(), read[i].getArrivalTime());
+            assertEquals(table[i].getPriority(), read[i].getPriority());
+            assertArrayEquals(table[i].getBursts(), read[i].getBursts());
+        }
+    }
+
+    @Test
+    public void emptyTable() throws IOException {
+        String path = write(new Process[0]);
+        assertTrue(WorkloadFile.isBinary(path));
+        assertEquals(0, WorkloadFile.read(path).length);
+    }
+
+    @Test
+    public void truncatedFile() throws IOException {
+        String path = write(TableCreation.createTable(10, new Random(2)));
+        long length = new File(path).length();
+        for (long size : new long[]{length - 1, 4 * WorkloadFile.HEADER_INTS, 8, 0}) {
+            try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+                file.setLength(size);
+            }
+            assertThrows(EOFException.class, () -> WorkloadFile.read(path), "truncated to " + size);
+        }
+    }
+
+    @Test
+    public void evenBurstCount() throws IOException {
+        Process[] table = TableCreation.createTable(3, new Random(3));
+        String path = write(table);
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int maxBursts = buffer.getInt(12);
+        int recordBytes = 4 * (WorkloadFile.RECORD_INTS + maxBursts);
+        // The second process claims one burst fewer
+        int countAt = 4 * WorkloadFile.HEADER_INTS + recordBytes + 4 * (WorkloadFile.RECORD_INTS - 1);
+        buffer.putInt(countAt, buffer.getInt(countAt) - 1);
+        Files.write(Paths.get(path), bytes);
+        IOException e = assertThrows(IOException.class, () -> WorkloadFile.read(path));
+        assertTrue(e.getMessage().contains("odd"), e.getMessage());
+    }
+
+}